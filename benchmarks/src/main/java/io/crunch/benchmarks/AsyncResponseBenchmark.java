@@ -0,0 +1,136 @@
+package io.crunch.benchmarks;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.CompletionCallback;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.core.SynchronousExecutionContext;
+import org.jboss.resteasy.mock.MockDispatcherFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.Dispatcher;
+import org.jboss.resteasy.spi.HttpRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of suspending and resuming a request with {@link AsyncResponse} in RESTEasy, the dispatch path of the WildFly
+ * suspended endpoint.
+ * <p>
+ * The same payload is served by a synchronous resource method, by a suspended one resumed before it returns, and by a
+ * suspended one resumed from another thread like the endpoint does when its task completes. The requests go through
+ * the RESTEasy dispatcher with mock HTTP objects, so the difference to {@link #sync()} is the cost of the asynchronous
+ * response and its completion callback, without the network and the servlet container.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class AsyncResponseBenchmark {
+
+    private static final String DONE = AsyncResponseBenchmark.class.getName() + ".done";
+
+    private ExecutorService executor;
+
+    private Dispatcher dispatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        dispatcher = MockDispatcherFactory.createDispatcher();
+        dispatcher.getRegistry().addSingletonResource(new PayloadResource(executor));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int sync() throws Exception {
+        return invoke("/activity/sync", null).getStatus();
+    }
+
+    @Benchmark
+    public int suspendResume() throws Exception {
+        return invoke("/activity/suspended", null).getStatus();
+    }
+
+    @Benchmark
+    public int suspendResumeFromExecutor() throws Exception {
+        var done = new CompletableFuture<Void>();
+        var response = invoke("/activity/handoff", done);
+        done.join();
+        return response.getStatus();
+    }
+
+    private MockHttpResponse invoke(String uri, CompletableFuture<Void> done) throws Exception {
+        var request = MockHttpRequest.get(uri);
+        var response = new MockHttpResponse();
+        request.setAsynchronousContext(new SynchronousExecutionContext((SynchronousDispatcher) dispatcher, request, response));
+        if (done != null) {
+            request.setAttribute(DONE, done);
+        }
+        dispatcher.invoke(request, response);
+        return response;
+    }
+
+    @Path("/activity")
+    public static class PayloadResource {
+
+        private static final String ACTIVITIES = "[\"Running\", \"Swimming\", \"Cycling\"]";
+
+        private final ExecutorService executor;
+
+        PayloadResource(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @GET
+        @Path("/sync")
+        @Produces(MediaType.APPLICATION_JSON)
+        public String sync() {
+            return ACTIVITIES;
+        }
+
+        @GET
+        @Path("/suspended")
+        @Produces(MediaType.APPLICATION_JSON)
+        public void suspended(@Suspended AsyncResponse asyncResponse) {
+            asyncResponse.resume(ACTIVITIES);
+        }
+
+        @GET
+        @Path("/handoff")
+        @Produces(MediaType.APPLICATION_JSON)
+        public void handoff(@Context HttpRequest request, @Suspended AsyncResponse asyncResponse) {
+            @SuppressWarnings("unchecked")
+            var done = (CompletableFuture<Void>) request.getAttribute(DONE);
+            asyncResponse.register((CompletionCallback) error -> done.complete(null));
+            executor.execute(() -> asyncResponse.resume(ACTIVITIES));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.crunch.benchmarks;
+
+import io.crunch.rest.CustomException;
+import io.crunch.rest.CustomExceptionMapper;
+import jakarta.ws.rs.core.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Cost of the failure path of the activity task, which fails with a {@link CustomException} half of the time.
+ * <p>
+ * {@link #success()} completes a run with the activities as a baseline. {@link #failure()} creates the exception at
+ * the given depth of the stack, where filling in the stack trace dominates, and fails the run with it.
+ * {@link #failureThroughStage()} throws it inside a dependent stage, so it is wrapped into a
+ * {@link CompletionException} that the resources unwrap, and {@link #failureMapped()} adds the
+ * {@link CustomExceptionMapper} that turns it into the {@code 500 Internal Server Error} response. The log category of
+ * the mapper is switched off, so the message is built but the console is not measured.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Dorg.jboss.logging.provider=jdk")
+public class ExceptionPathBenchmark {
+
+    private static final String ACTIVITIES = "[\"Running\", \"Swimming\", \"Cycling\"]";
+
+    /**
+     * Frames below the benchmark method when the exception is created.
+     */
+    @Param({"0", "64"})
+    int depth;
+
+    private final CustomExceptionMapper mapper = new CustomExceptionMapper();
+
+    /**
+     * Keeps the switched off log category reachable, the JDK only holds its loggers weakly.
+     */
+    private Logger category;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        category = Logger.getLogger(CustomExceptionMapper.class.getName());
+        category.setLevel(java.util.logging.Level.OFF);
+    }
+
+    @Benchmark
+    public String success() {
+        return run(depth, false).handle((activities, error) -> activities).join();
+    }
+
+    @Benchmark
+    public Throwable failure() {
+        return run(depth, true).handle((activities, error) -> error).join();
+    }
+
+    @Benchmark
+    public Throwable failureThroughStage() {
+        return CompletableFuture.completedFuture(depth)
+                .<String>thenApply(frames -> {
+                    throw create(frames);
+                })
+                .handle((activities, error) -> error instanceof CompletionException && error.getCause() != null ? error.getCause() : error)
+                .join();
+    }
+
+    @Benchmark
+    public Response failureMapped() {
+        return run(depth, true)
+                .handle((activities, error) -> mapper.toResponse((CustomException) error))
+                .join();
+    }
+
+    private static CompletableFuture<String> run(int frames, boolean fail) {
+        return fail ? CompletableFuture.failedFuture(create(frames)) : CompletableFuture.completedFuture(ACTIVITIES);
+    }
+
+    private static CustomException create(int frames) {
+        return frames == 0 ? new CustomException("An error occurred") : create(frames - 1);
+    }
+}
@@ -0,0 +1,78 @@
+package io.crunch.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cost of handing a task over to another thread and waiting for its result, the step between a request thread and the
+ * thread that runs the activity task.
+ * <p>
+ * {@link #inline()} runs the task on the calling thread as a baseline. The other benchmarks submit it to a pool of
+ * platform threads, like the managed executor of WildFly and the worker pool of Quarkus, start it on a new virtual
+ * thread, or go through {@link CompletableFuture#supplyAsync(Supplier, java.util.concurrent.Executor)} like the runs
+ * of the task do.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ExecutorHandoffBenchmark {
+
+    private static final Supplier<String> TASK = () -> "[\"Running\", \"Swimming\", \"Cycling\"]";
+
+    private ExecutorService platformThreads;
+
+    private ExecutorService virtualThreads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        platformThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        platformThreads.shutdownNow();
+        virtualThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public String inline() {
+        return TASK.get();
+    }
+
+    @Benchmark
+    public String platformSubmit() throws ExecutionException, InterruptedException {
+        return platformThreads.submit(TASK::get).get();
+    }
+
+    @Benchmark
+    public String virtualSubmit() throws ExecutionException, InterruptedException {
+        return virtualThreads.submit(TASK::get).get();
+    }
+
+    @Benchmark
+    public String supplyAsync() {
+        return CompletableFuture.supplyAsync(TASK, platformThreads).join();
+    }
+}
@@ -0,0 +1,53 @@
+package io.crunch.benchmarks;
+
+import io.crunch.rest.ActivityPayload;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost and allocation of building the response body of the activities.
+ * <p>
+ * {@link #encodePerRequest()} encodes the activities to UTF-8 for every response, which the message body writer used to
+ * do, and {@link #preEncoded()} builds the response of the {@link ActivityPayload} around the shared bytes.
+ * {@link #ifNoneMatch()} is the check of the conditional request filter. Run with {@code -prof gc} to compare the bytes allocated per response.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PayloadBenchmark {
+
+    private static final String ACTIVITIES = "[\"Running\", \"Swimming\", \"Cycling\"]\n";
+
+    private final EntityTag ifNoneMatch = ActivityPayload.ACTIVITIES.entityTag();
+
+    @Benchmark
+    public Response encodePerRequest() {
+        return Response.ok(ACTIVITIES.getBytes(StandardCharsets.UTF_8)).build();
+    }
+
+    @Benchmark
+    public Response preEncoded() {
+        return ActivityPayload.ACTIVITIES.ok().build();
+    }
+
+    @Benchmark
+    public boolean ifNoneMatch() {
+        return ActivityPayload.ACTIVITIES.matches(ifNoneMatch);
+    }
+}
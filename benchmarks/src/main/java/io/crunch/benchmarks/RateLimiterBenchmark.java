@@ -0,0 +1,84 @@
+package io.crunch.benchmarks;
+
+import io.crunch.rest.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking a token of the {@link RateLimiter} for every request, with 64 request threads.
+ * <p>
+ * The per-request cost should stay below 200 ns at 64 threads. {@link #allowed()} measures the compare-and-set path
+ * with buckets that never run dry, {@link #rejected()} the read-only path of the clients over their rate. With a
+ * single client every thread contends for the same bucket, with 1024 clients the threads spread over the bins of the
+ * map.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@Threads(64)
+public class RateLimiterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Limiters {
+
+        @Param({"1", "1024"})
+        int clients;
+
+        String[] keys;
+
+        RateLimiter unlimited;
+
+        RateLimiter exhausted;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            keys = new String[clients];
+            for (int i = 0; i < clients; i++) {
+                keys[i] = "key:client-" + i;
+            }
+            unlimited = new RateLimiter(1e9, Integer.MAX_VALUE, 60, 10_000);
+            exhausted = new RateLimiter(1e-3, 1, 60, 10_000);
+            for (var key : keys) {
+                exhausted.tryAcquire(key);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        String key;
+
+        @Setup(Level.Trial)
+        public void setUp(Limiters limiters) {
+            key = limiters.keys[ThreadLocalRandom.current().nextInt(limiters.keys.length)];
+        }
+    }
+
+    @Benchmark
+    public long allowed(Limiters limiters, Client client) {
+        return limiters.unlimited.tryAcquire(client.key);
+    }
+
+    @Benchmark
+    public long rejected(Limiters limiters, Client client) {
+        return limiters.exhausted.tryAcquire(client.key);
+    }
+}
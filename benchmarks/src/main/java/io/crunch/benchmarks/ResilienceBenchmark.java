@@ -0,0 +1,128 @@
+package io.crunch.benchmarks;
+
+import io.crunch.rest.CircuitBreaker;
+import io.crunch.rest.CustomException;
+import io.crunch.rest.FairScheduler;
+import io.crunch.rest.HashedWheelTimer;
+import io.crunch.rest.Hedge;
+import io.crunch.rest.Priority;
+import io.crunch.rest.PriorityLanes;
+import io.crunch.rest.Retry;
+import io.crunch.rest.TaskDeadline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Overhead of the wrappers the activity resource puts around every run, measured around a run that already completed.
+ * <p>
+ * Each benchmark wraps the completed run in one mechanism: the {@link CircuitBreaker}, the {@link Retry} with its
+ * budget, the {@link Hedge} that arms and cancels its hedge timer, the {@link FairScheduler} and the
+ * {@link PriorityLanes}. {@link #chain()} nests them in the order of the dedicated runs of the reactive endpoint. The
+ * settings are the defaults of the service, except that the lanes and the fair scheduler never fill up.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ResilienceBenchmark {
+
+    private static final String ACTIVITIES = "[\"Running\", \"Swimming\", \"Cycling\"]";
+
+    private static final Supplier<CompletableFuture<String>> RUN = () -> CompletableFuture.completedFuture(ACTIVITIES);
+
+    private ScheduledExecutorService executor;
+
+    private HashedWheelTimer wheel;
+
+    private CircuitBreaker breaker;
+
+    private Retry retry;
+
+    private Hedge hedge;
+
+    private FairScheduler fair;
+
+    private PriorityLanes lanes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        wheel = new HashedWheelTimer(runnable -> {
+            var thread = new Thread(runnable, "benchmark-deadline-wheel");
+            thread.setDaemon(true);
+            return thread;
+        }, executor, 100, TimeUnit.MILLISECONDS, 512);
+        wheel.start();
+        breaker = new CircuitBreaker("activity", new CircuitBreaker.Settings(100, 100, 75, 7500, 80, 5000, 10, 5));
+        retry = new Retry(wheel, 3, 100, 1000, 5000, 20, CustomException.class::isInstance);
+        hedge = new Hedge(wheel, 50, 10, 1000, 1000, 5000);
+        fair = new FairScheduler(Integer.MAX_VALUE, Map.of(), 1);
+        lanes = new PriorityLanes(Integer.MAX_VALUE, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        wheel.close();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String baseline() {
+        return RUN.get().join();
+    }
+
+    @Benchmark
+    public String circuitBreaker() {
+        return breaker.execute(RUN).join();
+    }
+
+    @Benchmark
+    public String retry() {
+        return retry.execute(RUN, TaskDeadline.after(8, TimeUnit.SECONDS)).join();
+    }
+
+    @Benchmark
+    public String hedge() {
+        return hedge.execute(RUN, TaskDeadline.after(8, TimeUnit.SECONDS)).join();
+    }
+
+    @Benchmark
+    public String fairScheduler() {
+        return fair.submit("tenant", RUN).join();
+    }
+
+    @Benchmark
+    public String priorityLanes() {
+        var lease = lanes.submit(Priority.INTERACTIVE, granted -> {
+        });
+        var activities = RUN.get().join();
+        lease.release();
+        return activities;
+    }
+
+    @Benchmark
+    public String chain() {
+        var deadline = TaskDeadline.after(8, TimeUnit.SECONDS);
+        return retry.execute(() -> hedge.execute(() -> fair.submit("tenant", () -> breaker.execute(RUN)), deadline), deadline).join();
+    }
+}
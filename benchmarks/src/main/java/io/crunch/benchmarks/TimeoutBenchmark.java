@@ -0,0 +1,110 @@
+package io.crunch.benchmarks;
+
+import io.crunch.rest.DeadlineScheduler;
+import io.crunch.rest.ExecutorDeadlineScheduler;
+import io.crunch.rest.HashedWheelTimer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of registering and cancelling the 8 second timeout of a request that completes in time.
+ * <p>
+ * {@link CompletableFuture#completeOnTimeout} schedules a task on the shared delayer of the JDK and cancels it when the
+ * future completes, the {@link ExecutorDeadlineScheduler} does the same on a {@link ScheduledThreadPoolExecutor}, and
+ * the {@link HashedWheelTimer} links the deadline into a bucket of the wheel. Both executors keep their tasks in a
+ * binary heap, so the cost grows with the timeouts of the other requests in flight, which {@link #pending} simulates.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@Threads(4)
+public class TimeoutBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 8;
+
+    private static final String ACTIVITIES = "[\"Running\", \"Swimming\", \"Cycling\"]";
+
+    private static final Runnable NOOP = () -> {
+    };
+
+    /**
+     * Timeouts of other requests registered with every mechanism during the measurement.
+     */
+    @Param({"0", "100000"})
+    int pending;
+
+    private ScheduledThreadPoolExecutor executor;
+
+    private DeadlineScheduler scheduled;
+
+    private HashedWheelTimer wheel;
+
+    private final List<CompletableFuture<String>> pendingFutures = new ArrayList<>();
+
+    private final List<DeadlineScheduler.Deadline> pendingDeadlines = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        scheduled = new ExecutorDeadlineScheduler(executor);
+        wheel = new HashedWheelTimer(runnable -> {
+            var thread = new Thread(runnable, "benchmark-deadline-wheel");
+            thread.setDaemon(true);
+            return thread;
+        }, executor, 100, TimeUnit.MILLISECONDS, 512);
+        wheel.start();
+        for (int i = 0; i < pending; i++) {
+            pendingFutures.add(new CompletableFuture<String>().completeOnTimeout(ACTIVITIES, 1, TimeUnit.HOURS));
+            pendingDeadlines.add(scheduled.schedule(1, TimeUnit.HOURS, NOOP));
+            pendingDeadlines.add(wheel.schedule(1, TimeUnit.HOURS, NOOP));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pendingFutures.forEach(future -> future.complete(ACTIVITIES));
+        pendingDeadlines.forEach(DeadlineScheduler.Deadline::cancel);
+        wheel.close();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String completeOnTimeout() {
+        var response = new CompletableFuture<String>().completeOnTimeout("timed out", TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        response.complete(ACTIVITIES);
+        return response.join();
+    }
+
+    @Benchmark
+    public boolean executorScheduler() {
+        return scheduled.schedule(TIMEOUT_SECONDS, TimeUnit.SECONDS, NOOP).cancel();
+    }
+
+    @Benchmark
+    public boolean hashedWheelTimer() {
+        return wheel.schedule(TIMEOUT_SECONDS, TimeUnit.SECONDS, NOOP).cancel();
+    }
+}
@@ -0,0 +1,102 @@
+package io.crunch.benchmarks;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Mutiny operators of the Quarkus reactive endpoint, one at a time and chained like the endpoint does.
+ * <p>
+ * {@link #item()} is the baseline of a {@link Uni} that emits an item at once. {@link #ifNoItemAfter()} arms and
+ * cancels the timeout of the endpoint on the default worker pool of Mutiny, {@link #recoverWithItem()} replaces a
+ * failure with a fallback item, and {@link #runSubscriptionOn()} hands the subscription over to an executor and waits
+ * for the item. The failure is allocated once, the cost of creating exceptions is measured by
+ * {@link ExceptionPathBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class UniPipelineBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(8);
+
+    private static final String ACTIVITIES = "[\"Running\", \"Swimming\", \"Cycling\"]";
+
+    private static final String FALLBACK = "[]";
+
+    private static final RuntimeException FAILURE = new IllegalStateException("An error occurred");
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String item() {
+        return Uni.createFrom().item(ACTIVITIES).await().indefinitely();
+    }
+
+    @Benchmark
+    public String ifNoItemAfter() {
+        return Uni.createFrom().item(ACTIVITIES)
+                .ifNoItem().after(TIMEOUT).fail()
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public String recoverWithItem() {
+        return Uni.createFrom().<String>failure(FAILURE)
+                .onFailure().recoverWithItem(FALLBACK)
+                .await().indefinitely();
+    }
+
+    @Benchmark
+    public String runSubscriptionOn() {
+        return Uni.createFrom().item(ACTIVITIES)
+                .runSubscriptionOn(executor)
+                .await().indefinitely();
+    }
+
+    /**
+     * The pipeline of the reactive endpoint around a run that already completed.
+     */
+    @Benchmark
+    public String endpointPipeline() {
+        var run = CompletableFuture.completedFuture(ACTIVITIES);
+        return Uni.createFrom()
+                .deferred(() -> Uni.createFrom().completionStage(run).onCancellation().invoke(() -> run.cancel(false)))
+                .map(activities -> activities)
+                .onFailure(ServiceUnavailableException.class).recoverWithItem(FALLBACK)
+                .ifNoItem().after(TIMEOUT).failWith(ServiceUnavailableException::new)
+                .onFailure().recoverWithItem(FALLBACK)
+                .await().indefinitely();
+    }
+}
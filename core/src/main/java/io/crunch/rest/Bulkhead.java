@@ -0,0 +1,359 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of requests of an endpoint that run at the same time.
+ * <p>
+ * At most {@code maxConcurrent} requests run, at most {@code maxQueue} further requests wait for one of them to
+ * finish, and every other request is rejected at once instead of being queued until it times out. Admission hands out
+ * a {@link Ticket}, which either holds a permit or a place in the wait queue. Releasing a ticket with a permit passes
+ * the permit to the oldest waiting ticket.
+ * </p>
+ *
+ * <h2>Load Shedding</h2>
+ * <p>
+ * A fixed queue length does not tell whether the queue drains. The bulkhead therefore measures the sojourn time of every
+ * ticket, the time between its admission and its permit, and sheds load CoDel style when a permit is passed on:
+ * </p>
+ * <ul>
+ *     <li>The minimum sojourn time is tracked per {@code interval}. An empty queue counts as zero sojourn time.</li>
+ *     <li>If the minimum of the previous interval stayed above the {@code target}, the queue is a standing queue and
+ *         every ticket that waited longer than the target is shed.</li>
+ *     <li>A ticket that waited longer than {@code maxSojourn} is always shed, because its request can no longer finish
+ *         before its timeout.</li>
+ * </ul>
+ * <p>
+ * A shed ticket fails with {@code 503 Service Unavailable} instead of starting a task whose response would be ignored,
+ * and the permit moves on to the next ticket.
+ * </p>
+ *
+ * <h2>Adaptive Limit</h2>
+ * <p>
+ * With a {@link GradientLimit} the number of running requests is not fixed at {@code maxConcurrent}, which becomes the
+ * upper bound. Every successful task reports the time between its permit and its completion, and the limit follows the
+ * latency gradient. A raised limit passes permits to the waiting tickets at once.
+ * </p>
+ *
+ * <h2>Thread Safety</h2>
+ * <p>
+ * The state is guarded by the monitor of the bulkhead. The critical sections only touch counters and a deque, and the
+ * futures of the waiting tickets are completed after the monitor is released.
+ * </p>
+ */
+public final class Bulkhead {
+
+    /**
+     * How the number of running requests is limited.
+     */
+    public enum LimitType {
+        /**
+         * At most {@code maxConcurrent} requests run.
+         */
+        FIXED,
+        /**
+         * The limit follows the latency gradient of the requests, see {@link GradientLimit}.
+         */
+        GRADIENT
+    }
+
+    /**
+     * Limits of a bulkhead.
+     *
+     * @param maxConcurrent The maximum number of running requests.
+     * @param maxQueue The maximum number of waiting requests.
+     * @param targetMillis The acceptable minimum sojourn time of the waiting requests.
+     * @param intervalMillis The interval of the minimum sojourn time.
+     * @param maxSojournMillis The sojourn time after which a request is shed, {@code 0} to disable.
+     * @param retryAfterSeconds The {@code Retry-After} of the rejected and shed requests.
+     */
+    public record Limits(int maxConcurrent, int maxQueue, long targetMillis, long intervalMillis, long maxSojournMillis,
+                         long retryAfterSeconds) {
+
+        public Limits {
+            if (maxConcurrent < 1 || maxQueue < 0 || targetMillis < 0 || intervalMillis < 1 || maxSojournMillis < 0) {
+                throw new IllegalArgumentException("Invalid bulkhead limits: " + maxConcurrent + " concurrent, " + maxQueue + " queued");
+            }
+        }
+    }
+
+    private final String name;
+
+    private final Limits limits;
+
+    private final long targetNanos;
+
+    private final long intervalNanos;
+
+    private final long maxSojournNanos;
+
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder shed = new LongAdder();
+
+    private final GradientLimit gradient;
+
+    private int running;
+
+    private int limit;
+
+    private long intervalStart = System.nanoTime();
+
+    private long intervalMinSojourn = Long.MAX_VALUE;
+
+    private boolean overloaded;
+
+    public Bulkhead(String name, Limits limits) {
+        this(name, limits, null);
+    }
+
+    /**
+     * Creates a bulkhead whose concurrency follows the given limit, bounded by {@code maxConcurrent}.
+     */
+    public Bulkhead(String name, Limits limits, GradientLimit gradient) {
+        this.name = name;
+        this.limits = limits;
+        this.gradient = gradient;
+        this.limit = gradient == null ? limits.maxConcurrent() : Math.min(gradient.limit(), limits.maxConcurrent());
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(limits.targetMillis());
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(limits.intervalMillis());
+        this.maxSojournNanos = limits.maxSojournMillis() == 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(limits.maxSojournMillis());
+    }
+
+    /**
+     * Admits a request if a permit or a place in the wait queue is free.
+     *
+     * @return The ticket of the admitted request, or an empty optional if the request is rejected.
+     */
+    public Optional<Ticket> tryEnter() {
+        synchronized (this) {
+            if (running < limit) {
+                running++;
+                var ticket = new Ticket(this);
+                ticket.granted = true;
+                ticket.startedAt = ticket.enqueuedAt;
+                ticket.permit.complete(null);
+                return Optional.of(ticket);
+            }
+            if (queue.size() < limits.maxQueue()) {
+                var ticket = new Ticket(this);
+                queue.addLast(ticket);
+                return Optional.of(ticket);
+            }
+        }
+        rejected.increment();
+        return Optional.empty();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long retryAfterSeconds() {
+        return limits.retryAfterSeconds();
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    public synchronized boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long shed() {
+        return shed.sum();
+    }
+
+    private void release(Ticket ticket) {
+        var dropped = new ArrayList<Ticket>(0);
+        var granted = new ArrayList<Ticket>(1);
+        synchronized (this) {
+            if (!ticket.granted) {
+                queue.remove(ticket);
+                return;
+            }
+            running--;
+            dispatch(System.nanoTime(), dropped, granted);
+        }
+        complete(dropped, granted);
+    }
+
+    /**
+     * Updates the adaptive limit with the latency of a successful task.
+     */
+    private void sample(long rtt) {
+        if (gradient == null) {
+            return;
+        }
+        var dropped = new ArrayList<Ticket>(0);
+        var granted = new ArrayList<Ticket>(0);
+        synchronized (this) {
+            limit = Math.min(gradient.update(rtt, running), limits.maxConcurrent());
+            dispatch(System.nanoTime(), dropped, granted);
+        }
+        complete(dropped, granted);
+    }
+
+    /**
+     * Passes the free permits to the waiting tickets and sheds the tickets that waited too long, guarded by the monitor.
+     */
+    private void dispatch(long now, List<Ticket> dropped, List<Ticket> granted) {
+        while (running < limit) {
+            var next = queue.pollFirst();
+            if (next == null) {
+                observe(0, now);
+                return;
+            }
+            if (shouldShed(now - next.enqueuedAt, now)) {
+                dropped.add(next);
+            } else {
+                next.granted = true;
+                next.startedAt = now;
+                running++;
+                granted.add(next);
+            }
+        }
+    }
+
+    private void complete(List<Ticket> dropped, List<Ticket> granted) {
+        for (var ticket : dropped) {
+            shed.increment();
+            ticket.permit.completeExceptionally(
+                    new ServiceUnavailableException("Bulkhead " + name + " shed the request", limits.retryAfterSeconds()));
+        }
+        for (var ticket : granted) {
+            ticket.permit.complete(null);
+        }
+    }
+
+    /**
+     * Records the sojourn time of a dequeued ticket and decides whether it is shed, guarded by the monitor.
+     */
+    private boolean shouldShed(long sojourn, long now) {
+        observe(sojourn, now);
+        return sojourn > maxSojournNanos || (overloaded && sojourn > targetNanos);
+    }
+
+    private void observe(long sojourn, long now) {
+        if (now - intervalStart >= intervalNanos) {
+            overloaded = intervalMinSojourn != Long.MAX_VALUE && intervalMinSojourn > targetNanos;
+            intervalMinSojourn = Long.MAX_VALUE;
+            intervalStart = now;
+        }
+        intervalMinSojourn = Math.min(intervalMinSojourn, sojourn);
+    }
+
+    /**
+     * Admission of a request, released when the request is finished.
+     */
+    public static final class Ticket {
+
+        /**
+         * Ticket of a request that is not limited by a bulkhead.
+         */
+        public static final Ticket UNBOUNDED = new Ticket(null);
+
+        private final Bulkhead bulkhead;
+
+        private final long enqueuedAt = System.nanoTime();
+
+        private final CompletableFuture<Void> permit = new CompletableFuture<>();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Whether the ticket holds a permit, guarded by the monitor of the bulkhead.
+         */
+        private boolean granted;
+
+        /**
+         * When the ticket received its permit, published by the completion of the permit.
+         */
+        private long startedAt;
+
+        private Ticket(Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+            if (bulkhead == null) {
+                permit.complete(null);
+            }
+        }
+
+        /**
+         * Starts the task once the ticket holds a permit.
+         * <p>
+         * The returned future completes with the result of the task, or fails with a
+         * {@link ServiceUnavailableException} if the ticket is shed. Cancelling it gives up the place in the wait queue
+         * or cancels the task, and its completion releases the ticket.
+         * </p>
+         *
+         * @param task Starts the task.
+         * @return The future of the task.
+         */
+        public <T> CompletableFuture<T> run(Supplier<CompletableFuture<T>> task) {
+            var result = new CompletableFuture<T>();
+            result.whenComplete((value, error) -> release());
+            permit.whenComplete((granted, shed) -> {
+                if (shed != null) {
+                    result.completeExceptionally(shed);
+                    return;
+                }
+                if (result.isDone()) {
+                    return;
+                }
+                CompletableFuture<T> run;
+                try {
+                    run = task.get();
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                run.whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        if (bulkhead != null) {
+                            bulkhead.sample(System.nanoTime() - startedAt);
+                        }
+                        result.complete(value);
+                    }
+                });
+                result.whenComplete((value, error) -> run.cancel(false));
+            });
+            return result;
+        }
+
+        /**
+         * Releases the permit or the place in the wait queue of the ticket, only the first call has an effect.
+         */
+        public void release() {
+            if (bulkhead != null && released.compareAndSet(false, true)) {
+                bulkhead.release(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling a task that keeps failing or slowing down, and probes it before it is called again.
+ * <p>
+ * The outcomes of the last {@code windowSize} calls are kept in a ring buffer. Once it holds at least
+ * {@code minimumCalls} outcomes, the breaker opens if the share of the failed calls reaches
+ * {@code failureRatePercent}, or the share of the calls slower than {@code slowCallMillis} reaches
+ * {@code slowCallRatePercent}. An open breaker fails every call at once with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header, without starting the task. After {@code openMillis} the breaker is half-open and lets
+ * {@code probes} calls through. The probes are judged by the same rates as the window: the breaker opens again as
+ * soon as the failed or slow probes reach {@code failureRatePercent} or {@code slowCallRatePercent} of the probes,
+ * and closes with an empty window once all probes completed below them. A task that fails part of its calls by design
+ * therefore does not keep the breaker open, as long as its rate stays below the threshold.
+ * </p>
+ * <p>
+ * Cancelled calls say nothing about the health of the task and are not recorded. A call rejected with
+ * {@code 503 Service Unavailable}, for example because it could not finish before the deadline of its request, would
+ * have taken too long and is recorded as a slow call. Leaving it out would raise the failure rate of the recorded
+ * calls, because only the calls that did not fail at once reach the deadline check.
+ * </p>
+ *
+ * <h2>Thread Safety</h2>
+ * <p>
+ * The breaker is lock-free. A call claims the next slot of the ring buffer with an atomic cursor and swaps its outcome
+ * into the slot, and the counters of the window are adjusted by the difference between the new and the evicted outcome.
+ * The counters can briefly lag behind the slots under contention, which only shifts the rates by a call or two. The
+ * state and the time it was opened at form one immutable phase, and the transitions are compare-and-set operations on
+ * it, so exactly one call opens, half-opens or closes the breaker, and a call that lost the race leaves the phase as
+ * the winner set it.
+ * </p>
+ */
+public final class CircuitBreaker {
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State {
+        /**
+         * The calls are let through and recorded.
+         */
+        CLOSED,
+        /**
+         * The calls are rejected.
+         */
+        OPEN,
+        /**
+         * A limited number of probe calls is let through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Settings of a circuit breaker.
+     *
+     * @param windowSize The number of recorded outcomes.
+     * @param minimumCalls The number of outcomes required before the rates are evaluated.
+     * @param failureRatePercent The share of failed calls that opens the breaker.
+     * @param slowCallMillis The duration above which a call is slow.
+     * @param slowCallRatePercent The share of slow calls that opens the breaker.
+     * @param openMillis The time the breaker stays open before it probes the task.
+     * @param probes The number of probe calls of the half-open breaker.
+     * @param retryAfterSeconds The {@code Retry-After} of the rejected calls.
+     */
+    public record Settings(int windowSize, int minimumCalls, int failureRatePercent, long slowCallMillis,
+                           int slowCallRatePercent, long openMillis, int probes, long retryAfterSeconds) {
+
+        public Settings {
+            if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || failureRatePercent < 1 || failureRatePercent > 100
+                    || slowCallRatePercent < 1 || slowCallRatePercent > 100 || slowCallMillis < 1 || openMillis < 0 || probes < 1) {
+                throw new IllegalArgumentException("Invalid circuit breaker settings: window " + windowSize + ", minimum " + minimumCalls);
+            }
+        }
+    }
+
+    private static final int SUCCESS = 1;
+
+    private static final int FAILURE = 2;
+
+    private static final int SLOW = 4;
+
+    /**
+     * Permit of a call that is recorded in the window.
+     */
+    private static final int CALL = 0;
+
+    /**
+     * Permit of a probe call of the half-open breaker.
+     */
+    private static final int PROBE = 1;
+
+    private static final int REJECTED = 2;
+
+    private final String name;
+
+    private final Settings settings;
+
+    private final long slowCallNanos;
+
+    private final long openNanos;
+
+    private final AtomicIntegerArray ring;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    private final AtomicReference<Phase> phase = new AtomicReference<>(Phase.CLOSED);
+
+    private final AtomicInteger probes = new AtomicInteger();
+
+    private final AtomicInteger probeCalls = new AtomicInteger();
+
+    private final AtomicInteger probeFailures = new AtomicInteger();
+
+    private final AtomicInteger probeSlowCalls = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(String name, Settings settings) {
+        this.name = name;
+        this.settings = settings;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(settings.slowCallMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(settings.openMillis());
+        this.ring = new AtomicIntegerArray(settings.windowSize());
+    }
+
+    /**
+     * Calls the task if the breaker lets the call through.
+     *
+     * @param call Starts the task.
+     * @return The future of the task, or a future failed with a {@link ServiceUnavailableException} if the breaker
+     * rejected the call.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        var permit = acquire();
+        if (permit == REJECTED) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(
+                    new ServiceUnavailableException("Circuit breaker " + name + " is open", settings.retryAfterSeconds()));
+        }
+        var startedAt = System.nanoTime();
+        CompletableFuture<T> run;
+        try {
+            run = call.get();
+        } catch (RuntimeException e) {
+            run = CompletableFuture.failedFuture(e);
+        }
+        run.whenComplete((value, error) -> record(permit, System.nanoTime() - startedAt, error));
+        return run;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        return phase.get().state();
+    }
+
+    /**
+     * Returns the share of the failed calls in the window, in percent.
+     */
+    public int failureRate() {
+        return rate(failures.get());
+    }
+
+    /**
+     * Returns the share of the slow calls in the window, in percent.
+     */
+    public int slowCallRate() {
+        return rate(slowCalls.get());
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns how many times the breaker opened.
+     */
+    public long opened() {
+        return opened.sum();
+    }
+
+    private int acquire() {
+        while (true) {
+            var current = phase.get();
+            switch (current.state()) {
+                case CLOSED -> {
+                    return CALL;
+                }
+                case OPEN -> {
+                    if (System.nanoTime() - current.openedAt() < openNanos) {
+                        return REJECTED;
+                    }
+                    if (phase.compareAndSet(current, Phase.HALF_OPEN)) {
+                        probeCalls.set(0);
+                        probeFailures.set(0);
+                        probeSlowCalls.set(0);
+                        probes.set(settings.probes());
+                    }
+                }
+                case HALF_OPEN -> {
+                    int left;
+                    do {
+                        left = probes.get();
+                        if (left <= 0) {
+                            return REJECTED;
+                        }
+                    } while (!probes.compareAndSet(left, left - 1));
+                    return PROBE;
+                }
+            }
+        }
+    }
+
+    private void record(int permit, long duration, Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CancellationException) {
+            if (permit == PROBE) {
+                // Give the unused probe back, the next call probes the task instead
+                probes.incrementAndGet();
+            }
+            return;
+        }
+        // A call rejected with 503 would not have finished in time, it counts as slow instead of failed
+        var rejectedAsSlow = cause instanceof ServiceUnavailableException;
+        var outcome = (cause == null || rejectedAsSlow ? SUCCESS : FAILURE) | (duration > slowCallNanos || rejectedAsSlow ? SLOW : 0);
+        if (permit == PROBE) {
+            // Count the outcome before the completed probe, so the call completing the last probe sees all outcomes
+            var failedProbes = flag(outcome, FAILURE) == 1 ? probeFailures.incrementAndGet() : probeFailures.get();
+            var slowProbes = flag(outcome, SLOW) == 1 ? probeSlowCalls.incrementAndGet() : probeSlowCalls.get();
+            var completed = probeCalls.incrementAndGet();
+            if (exceeds(failedProbes, slowProbes, settings.probes())) {
+                trip(State.HALF_OPEN);
+            } else if (completed == settings.probes()) {
+                reset();
+                var current = phase.get();
+                if (current.state() == State.HALF_OPEN) {
+                    phase.compareAndSet(current, Phase.CLOSED);
+                }
+            }
+            return;
+        }
+        if (phase.get().state() != State.CLOSED) {
+            return;
+        }
+        var slot = (int) (cursor.getAndIncrement() % settings.windowSize());
+        var evicted = ring.getAndSet(slot, outcome);
+        var total = evicted == 0 ? calls.incrementAndGet() : calls.get();
+        var failed = failures.addAndGet(flag(outcome, FAILURE) - flag(evicted, FAILURE));
+        var slow = slowCalls.addAndGet(flag(outcome, SLOW) - flag(evicted, SLOW));
+        if (total >= settings.minimumCalls() && exceeds(failed, slow, total)) {
+            trip(State.CLOSED);
+        }
+    }
+
+    /**
+     * Returns whether the failed or slow calls reach their rate of the given number of calls.
+     */
+    private boolean exceeds(int failed, int slow, int total) {
+        return failed * 100 >= settings.failureRatePercent() * total || slow * 100 >= settings.slowCallRatePercent() * total;
+    }
+
+    /**
+     * Opens the breaker if it is still in the given state, the open window starts when the transition succeeds.
+     */
+    private void trip(State from) {
+        var current = phase.get();
+        if (current.state() == from && phase.compareAndSet(current, new Phase(State.OPEN, System.nanoTime()))) {
+            probes.set(0);
+            opened.increment();
+        }
+    }
+
+    /**
+     * Empties the window while the breaker is half-open, when no call is recorded in it.
+     */
+    private void reset() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, 0);
+        }
+        cursor.set(0);
+        calls.set(0);
+        failures.set(0);
+        slowCalls.set(0);
+    }
+
+    private int rate(int count) {
+        var total = calls.get();
+        return total == 0 ? 0 : count * 100 / total;
+    }
+
+    private static int flag(int outcome, int flag) {
+        return (outcome & flag) != 0 ? 1 : 0;
+    }
+
+    /**
+     * State of the breaker with the time it was opened at, replaced as a whole on every transition.
+     */
+    private record Phase(State state, long openedAt) {
+
+        static final Phase CLOSED = new Phase(State.CLOSED, 0);
+
+        static final Phase HALF_OPEN = new Phase(State.HALF_OPEN, 0);
+    }
+}
@@ -0,0 +1,58 @@
+package io.crunch.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the request deadlines of the activity endpoints.
+ * <p>
+ * A deadline is registered when a request is suspended and cancelled when the request completes, so most deadlines are
+ * cancelled long before they expire. Implementations are selected with the {@code activity.deadline.scheduler}
+ * configuration property:
+ * </p>
+ * <ul>
+ *     <li>{@link Type#WHEEL} – {@link HashedWheelTimer}, O(1) registration and cancellation shared by all requests.</li>
+ *     <li>{@link Type#EXECUTOR} – {@link ExecutorDeadlineScheduler}, one task per request in the delay queue of a
+ *     scheduled executor, which is what the container does for {@code AsyncResponse#setTimeout}.</li>
+ * </ul>
+ */
+public interface DeadlineScheduler {
+
+    enum Type {
+        WHEEL,
+        EXECUTOR
+    }
+
+    /**
+     * Registers a deadline.
+     *
+     * @param delay The time from now until the deadline expires.
+     * @param unit The unit of the delay.
+     * @param onExpiry The action executed when the deadline expires without being cancelled.
+     * @return The handle of the registered deadline.
+     */
+    Deadline schedule(long delay, TimeUnit unit, Runnable onExpiry);
+
+    /**
+     * Stops the scheduler, pending deadlines never expire afterward.
+     */
+    default void close() {
+    }
+
+    /**
+     * Handle of a registered deadline.
+     */
+    interface Deadline {
+
+        /**
+         * Cancels the deadline.
+         *
+         * @return {@code true} if the deadline was cancelled, {@code false} if it had already expired or been cancelled.
+         */
+        boolean cancel();
+
+        /**
+         * Returns {@code true} if the deadline has expired.
+         */
+        boolean isExpired();
+    }
+}
@@ -0,0 +1,39 @@
+package io.crunch.rest;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DeadlineScheduler} that schedules every deadline as a separate task of a {@link ScheduledExecutorService}.
+ * <p>
+ * Registration and cancellation cost O(log n) in the delay queue of the executor. It is kept as the baseline
+ * for the {@link HashedWheelTimer}.
+ * </p>
+ */
+public class ExecutorDeadlineScheduler implements DeadlineScheduler {
+
+    private final ScheduledExecutorService executor;
+
+    public ExecutorDeadlineScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Deadline schedule(long delay, TimeUnit unit, Runnable onExpiry) {
+        return new ScheduledDeadline(executor.schedule(onExpiry, delay, unit));
+    }
+
+    private record ScheduledDeadline(ScheduledFuture<?> future) implements Deadline {
+
+        @Override
+        public boolean cancel() {
+            return future.cancel(false);
+        }
+
+        @Override
+        public boolean isExpired() {
+            return future.isDone() && !future.isCancelled();
+        }
+    }
+}
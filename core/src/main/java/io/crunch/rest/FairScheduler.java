@@ -0,0 +1,216 @@
+package io.crunch.rest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Shares a fixed number of running tasks between tenants by deficit round robin.
+ * <p>
+ * At most {@code maxRunning} tasks run at the same time. The tasks beyond that wait in one FIFO queue per tenant, and a
+ * free slot is passed to the queues in deficit round robin order: every tenant with waiting tasks receives its weight
+ * as credit when its turn comes, starts one task per credit, and passes the turn on once its credit or its queue is
+ * exhausted. A tenant with weight 2 therefore starts twice as many tasks as a tenant with weight 1 while both are
+ * backlogged, and a burst of one tenant delays the tasks of another one by at most one round instead of the whole
+ * burst.
+ * </p>
+ * <p>
+ * A task that is cancelled while it waits leaves its queue, and the slot of a running task is released when its
+ * future completes.
+ * </p>
+ *
+ * <h2>Thread Safety</h2>
+ * <p>
+ * The queues and the round robin state are guarded by the monitor of the scheduler. The critical sections only touch
+ * deques and counters, the tasks are started after the monitor is released.
+ * </p>
+ */
+public final class FairScheduler {
+
+    private final int maxRunning;
+
+    private final Map<String, Integer> weights;
+
+    private final int defaultWeight;
+
+    private final Map<String, Tenant> tenants = new HashMap<>();
+
+    /**
+     * The tenants with waiting tasks in round robin order, the head has the turn.
+     */
+    private final ArrayDeque<Tenant> active = new ArrayDeque<>();
+
+    private int running;
+
+    private int queued;
+
+    /**
+     * Creates a fair scheduler.
+     *
+     * @param maxRunning The maximum number of running tasks.
+     * @param weights The weights of the tenants, a tenant with twice the weight starts twice as many tasks.
+     * @param defaultWeight The weight of the tenants without a configured weight.
+     */
+    public FairScheduler(int maxRunning, Map<String, Integer> weights, int defaultWeight) {
+        if (maxRunning < 1 || defaultWeight < 1 || weights.values().stream().anyMatch(weight -> weight < 1)) {
+            throw new IllegalArgumentException("Invalid fair scheduler: " + maxRunning + " running, weights " + weights);
+        }
+        this.maxRunning = maxRunning;
+        this.weights = Map.copyOf(weights);
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Starts the task of the tenant once it receives a slot.
+     *
+     * @param tenant The tenant of the task.
+     * @param task Starts the task.
+     * @return The future of the task. Cancelling it removes a waiting task from its queue or cancels the running task.
+     */
+    public <T> CompletableFuture<T> submit(String tenant, Supplier<CompletableFuture<T>> task) {
+        var job = new Job<>(task);
+        boolean start;
+        synchronized (this) {
+            start = running < maxRunning;
+            if (start) {
+                running++;
+            } else {
+                var queue = tenants.computeIfAbsent(tenant, name -> new Tenant(name, weights.getOrDefault(name, defaultWeight)));
+                if (queue.jobs.isEmpty()) {
+                    active.addLast(queue);
+                }
+                queue.jobs.addLast(job);
+                job.tenant = queue;
+                queued++;
+            }
+        }
+        job.result.whenComplete((value, error) -> finished(job));
+        if (start) {
+            job.start();
+        }
+        return job.result;
+    }
+
+    public synchronized int running() {
+        return running;
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    /**
+     * Returns the number of tenants with waiting tasks.
+     */
+    public synchronized int backlogged() {
+        return active.size();
+    }
+
+    private void finished(Job<?> job) {
+        var next = new ArrayList<Job<?>>(1);
+        synchronized (this) {
+            if (job.tenant != null) {
+                // Cancelled while waiting
+                if (job.tenant.jobs.remove(job)) {
+                    queued--;
+                    if (job.tenant.jobs.isEmpty()) {
+                        deactivate(job.tenant);
+                    }
+                }
+                return;
+            }
+            running--;
+            dispatch(next);
+        }
+        next.forEach(Job::start);
+    }
+
+    /**
+     * Passes the free slots to the waiting tasks in deficit round robin order, guarded by the monitor.
+     */
+    private void dispatch(List<Job<?>> next) {
+        while (running < maxRunning && !active.isEmpty()) {
+            var tenant = active.peekFirst();
+            if (tenant.credit == 0) {
+                tenant.credit = tenant.weight;
+            }
+            var job = tenant.jobs.pollFirst();
+            tenant.credit--;
+            queued--;
+            running++;
+            job.tenant = null;
+            next.add(job);
+            if (tenant.jobs.isEmpty()) {
+                deactivate(tenant);
+            } else if (tenant.credit == 0) {
+                active.addLast(active.pollFirst());
+            }
+        }
+    }
+
+    private void deactivate(Tenant tenant) {
+        active.remove(tenant);
+        tenant.credit = 0;
+        tenants.remove(tenant.name);
+    }
+
+    private static final class Tenant {
+
+        private final String name;
+
+        private final int weight;
+
+        private final ArrayDeque<Job<?>> jobs = new ArrayDeque<>();
+
+        /**
+         * Tasks the tenant can still start in its current turn.
+         */
+        private int credit;
+
+        Tenant(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Job<T> {
+
+        private final Supplier<CompletableFuture<T>> task;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /**
+         * The queue of a waiting job, {@code null} once it holds a slot, guarded by the monitor of the scheduler.
+         */
+        private Tenant tenant;
+
+        Job(Supplier<CompletableFuture<T>> task) {
+            this.task = task;
+        }
+
+        void start() {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> run;
+            try {
+                run = task.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            run.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, error) -> run.cancel(false));
+        }
+    }
+}
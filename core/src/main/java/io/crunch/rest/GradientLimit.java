@@ -0,0 +1,121 @@
+package io.crunch.rest;
+
+/**
+ * Concurrency limit that follows the latency gradient of the requests.
+ * <p>
+ * The limit compares two exponential moving averages of the latency: the short-term latency of the last few requests
+ * and the long-term latency, the baseline. While the short-term latency stays within a tolerance of the long-term one the
+ * gradient is 1 and the limit grows by the square root of itself. A rising short-term latency means that requests start
+ * to queue behind the limit, for example in the worker pool, and the gradient shrinks the limit proportionally, by at
+ * most half per sample. Each new limit is smoothed with the previous one, so a single slow request barely moves it.
+ * </p>
+ * <p>
+ * The baseline only follows a short-term latency that stays within a tenth of it, so a standing queue cannot turn
+ * itself into the new normal, unless the limit is already at its minimum and the latency cannot be caused by queueing. It decays
+ * faster when the short-term latency drops far below it, so the limit recovers after a burst. The limit only grows
+ * while at least half of it is in use, so an idle endpoint does not drift to the maximum.
+ * </p>
+ * <p>
+ * Against a server whose latency grows with the requests beyond its workers, the limit settles above the number of
+ * workers and below twice it, where the shrinking gradient balances the growth. The first sample seeds the
+ * baseline, so an initial limit above the workers seeds it with queueing and the limit settles higher.
+ * </p>
+ * <p>
+ * The instances are not thread-safe, the {@link Bulkhead} updates its limit under its monitor.
+ * </p>
+ */
+public final class GradientLimit {
+
+    /**
+     * Ratio of the long-term and short-term latency that is still considered flat.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * Ratio of the short-term and long-term latency up to which the baseline follows the short-term latency.
+     */
+    private static final double DRIFT = 1.1;
+
+    /**
+     * Weight of a new limit against the previous one.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Number of samples of the short-term latency average, which smooths the spread of the task durations.
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    /**
+     * Number of samples of the long-term latency average.
+     */
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private double limit;
+
+    private double shortRtt;
+
+    private double longRtt;
+
+    private long samples;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid gradient limit: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Returns the current limit.
+     */
+    public int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the long-term latency, the baseline, in nanoseconds.
+     */
+    public long longRtt() {
+        return (long) longRtt;
+    }
+
+    /**
+     * Updates the limit with the latency of a request.
+     *
+     * @param rtt The latency of the request in nanoseconds.
+     * @param inflight The number of requests in flight when the request completed.
+     * @return The new limit.
+     */
+    public int update(long rtt, int inflight) {
+        if (rtt <= 0) {
+            return limit();
+        }
+        if (samples++ == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return limit();
+        }
+        shortRtt += (rtt - shortRtt) * 2 / (SHORT_WINDOW + 1);
+        if (shortRtt <= DRIFT * longRtt || limit <= minLimit) {
+            longRtt += (shortRtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (inflight < limit / 2) {
+            return limit();
+        }
+        var gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        var newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        return limit();
+    }
+}
@@ -0,0 +1,304 @@
+package io.crunch.rest;
+
+import org.jboss.logging.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DeadlineScheduler} backed by a hashed timing wheel.
+ * <p>
+ * The wheel is an array of buckets, each holding a doubly linked list of deadlines. A single worker thread advances
+ * the wheel once per tick and expires the deadlines of the current bucket whose remaining rounds reached zero.
+ * </p>
+ * <ul>
+ *     <li>Registration appends the deadline to a lock-free queue, which the worker drains into the buckets on the
+ *     next tick, so callers never contend on the buckets.</li>
+ *     <li>Cancellation is a single CAS on the deadline. The worker unlinks cancelled deadlines from their bucket in
+ *     O(1) on the next tick.</li>
+ *     <li>Expiry is precise to one tick. Expired actions are handed to an executor, the worker thread never runs them.</li>
+ * </ul>
+ * <p>
+ * A request deadline of several seconds does not need millisecond precision, so the tick trades precision for a
+ * constant cost per request regardless of how many deadlines are pending.
+ * </p>
+ */
+public class HashedWheelTimer implements DeadlineScheduler {
+
+    private static final Logger log = Logger.getLogger(HashedWheelTimer.class);
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final int INIT = 0;
+    private static final int STARTED = 1;
+    private static final int STOPPED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(INIT);
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final long tickNanos;
+
+    private final Executor executor;
+
+    private final Thread worker;
+
+    private final Queue<WheelDeadline> registrations = new ConcurrentLinkedQueue<>();
+
+    private final Queue<WheelDeadline> cancellations = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder pending = new LongAdder();
+
+    private volatile long startTime;
+
+    /**
+     * Creates a timer, {@link #start()} must be called before the first deadline is registered.
+     *
+     * @param threadFactory Creates the worker thread that advances the wheel.
+     * @param executor Runs the actions of the expired deadlines.
+     * @param tickDuration The duration of one tick.
+     * @param unit The unit of the tick duration.
+     * @param wheelSize The number of buckets, rounded up to a power of two.
+     */
+    public HashedWheelTimer(ThreadFactory threadFactory, Executor executor, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Wheel size must be in (0, 2^30]: " + wheelSize);
+        }
+        var size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.wheel = new Bucket[Math.max(size, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.executor = executor;
+        this.worker = threadFactory.newThread(this::run);
+    }
+
+    /**
+     * Starts the worker thread.
+     */
+    public void start() {
+        if (state.compareAndSet(INIT, STARTED)) {
+            startTime = System.nanoTime();
+            worker.start();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (state.getAndSet(STOPPED) == STARTED) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public Deadline schedule(long delay, TimeUnit unit, Runnable onExpiry) {
+        if (state.get() != STARTED) {
+            throw new IllegalStateException("Timer is not running");
+        }
+        var deadline = new WheelDeadline(this, onExpiry, System.nanoTime() - startTime + unit.toNanos(delay));
+        pending.increment();
+        registrations.add(deadline);
+        return deadline;
+    }
+
+    /**
+     * Returns the number of registered deadlines that have neither expired nor been cancelled.
+     */
+    public long pending() {
+        return pending.sum();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (state.get() == STARTED) {
+            var now = waitForNextTick(tick);
+            if (now < 0) {
+                break;
+            }
+            removeCancelled();
+            transferRegistrations(tick);
+            wheel[(int) (tick & mask)].expire(now);
+            tick++;
+        }
+    }
+
+    /**
+     * Sleeps until the end of the given tick.
+     *
+     * @return The elapsed time since the start of the timer, or {@code -1} if the timer was stopped.
+     */
+    private long waitForNextTick(long tick) {
+        var tickEnd = tickNanos * (tick + 1);
+        for (;;) {
+            var now = System.nanoTime() - startTime;
+            var sleepMillis = (tickEnd - now + 999_999) / 1_000_000;
+            if (sleepMillis <= 0) {
+                return now;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                if (state.get() == STOPPED) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferRegistrations(long tick) {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            var deadline = registrations.poll();
+            if (deadline == null) {
+                return;
+            }
+            if (deadline.state != WheelDeadline.PENDING) {
+                continue;
+            }
+            var expiryTick = deadline.expiryNanos / tickNanos;
+            deadline.remainingRounds = (expiryTick - tick) / wheel.length;
+            // A deadline already in the past expires with the current tick
+            wheel[(int) (Math.max(expiryTick, tick) & mask)].add(deadline);
+        }
+    }
+
+    private void removeCancelled() {
+        WheelDeadline deadline;
+        while ((deadline = cancellations.poll()) != null) {
+            if (deadline.bucket != null) {
+                deadline.bucket.remove(deadline);
+            }
+        }
+    }
+
+    private void expire(WheelDeadline deadline) {
+        pending.decrement();
+        try {
+            executor.execute(deadline.onExpiry);
+        } catch (RuntimeException e) {
+            log.error("Deadline action could not be executed", e);
+        }
+    }
+
+    /**
+     * Registered deadline, linked into a bucket by the worker thread.
+     */
+    private static final class WheelDeadline implements Deadline {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<WheelDeadline> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(WheelDeadline.class, "state");
+
+        private final HashedWheelTimer timer;
+
+        private final Runnable onExpiry;
+
+        private final long expiryNanos;
+
+        private volatile int state = PENDING;
+
+        // Accessed only by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private WheelDeadline previous;
+        private WheelDeadline next;
+
+        WheelDeadline(HashedWheelTimer timer, Runnable onExpiry, long expiryNanos) {
+            this.timer = timer;
+            this.onExpiry = onExpiry;
+            this.expiryNanos = expiryNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.pending.decrement();
+            timer.cancellations.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        void expire() {
+            if (STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                timer.expire(this);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the deadlines that hash to the same slot of the wheel.
+     */
+    private static final class Bucket {
+
+        private WheelDeadline head;
+        private WheelDeadline tail;
+
+        void add(WheelDeadline deadline) {
+            deadline.bucket = this;
+            if (head == null) {
+                head = tail = deadline;
+            } else {
+                tail.next = deadline;
+                deadline.previous = tail;
+                tail = deadline;
+            }
+        }
+
+        void expire(long now) {
+            var deadline = head;
+            while (deadline != null) {
+                var next = deadline.next;
+                if (deadline.state != WheelDeadline.PENDING) {
+                    remove(deadline);
+                } else if (deadline.remainingRounds > 0) {
+                    deadline.remainingRounds--;
+                } else if (deadline.expiryNanos <= now) {
+                    remove(deadline);
+                    deadline.expire();
+                }
+                // Otherwise the deadline stays in the bucket and is checked again on the next round
+                deadline = next;
+            }
+        }
+
+        void remove(WheelDeadline deadline) {
+            if (deadline.bucket != this) {
+                return;
+            }
+            if (deadline.previous != null) {
+                deadline.previous.next = deadline.next;
+            } else {
+                head = deadline.next;
+            }
+            if (deadline.next != null) {
+                deadline.next.previous = deadline.previous;
+            } else {
+                tail = deadline.previous;
+            }
+            deadline.previous = null;
+            deadline.next = null;
+            deadline.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package io.crunch.rest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Hedges slow attempts of a task with a second attempt to cut the tail latency.
+ * <p>
+ * An execution starts the first attempt at once. If the attempt has not succeeded within the hedge delay, a second
+ * attempt is started in parallel, the first success completes the execution and the other attempt is cancelled. The
+ * delay is a percentile of the latency of the recent successful attempts, so only the slow draws of the task are
+ * hedged. An attempt that fails does not trigger a hedge, the execution fails once no attempt is left running.
+ * </p>
+ *
+ * <h2>Deadline</h2>
+ * <p>
+ * The delay is capped at a maximum, so a hedge still has time to finish before the execution times out. Without the
+ * cap a percentile of the successful latencies would converge to a delay that leaves no room for a second attempt. The
+ * cap only helps if it stays well below the timeout minus the shortest attempt, the hedge has to fit the slow draws of
+ * the task too. A hedge is only started if the shortest possible attempt still fits before the {@link TaskDeadline} of
+ * the execution, otherwise it is skipped without taking from the budget.
+ * </p>
+ *
+ * <h2>Budget</h2>
+ * <p>
+ * Hedges are extra load, exactly when the service is slow. Every execution deposits {@code budgetPercent} hundredths
+ * of a hedge into a {@link TokenBudget} and every hedge withdraws a whole one, so the hedges stay below the configured
+ * share of the executions. A hedge that finds the budget empty is skipped, and the budget holds at most
+ * {@link #MAX_BUDGET} hedges to bound a burst after a quiet period.
+ * </p>
+ *
+ * <h2>Thread Safety</h2>
+ * <p>
+ * The latency window is guarded by the monitor of the hedge and the attempts of an execution by the monitor of the
+ * execution. The hedge delay is recomputed every {@link #REFRESH} samples, not per execution.
+ * </p>
+ */
+public final class Hedge {
+
+    /**
+     * Number of latency samples the percentile is computed from.
+     */
+    private static final int WINDOW = 512;
+
+    /**
+     * Number of samples after which the hedge delay is recomputed.
+     */
+    private static final int REFRESH = 32;
+
+    /**
+     * Maximum number of hedges the budget can hold.
+     */
+    private static final int MAX_BUDGET = 10;
+
+    private final DeadlineScheduler scheduler;
+
+    private final int percentile;
+
+    private final long maxDelayNanos;
+
+    private final long minAttemptNanos;
+
+    private final long[] window = new long[WINDOW];
+
+    private final TokenBudget budget;
+
+    private final LongAdder hedged = new LongAdder();
+
+    private final LongAdder won = new LongAdder();
+
+    private final LongAdder denied = new LongAdder();
+
+    private final LongAdder beyondDeadline = new LongAdder();
+
+    private int samples;
+
+    private volatile long delayNanos;
+
+    /**
+     * Creates a hedge.
+     *
+     * @param scheduler Schedules the hedge delays.
+     * @param percentile The percentile of the latency of the successful attempts after which an attempt is hedged.
+     * @param budgetPercent The maximum share of the executions that are hedged, in percent.
+     * @param initialDelayMillis The hedge delay until enough latency samples are collected.
+     * @param maxDelayMillis The maximum hedge delay, well before the timeout minus the shortest attempt.
+     * @param minAttemptMillis The shortest time an attempt can take to succeed.
+     */
+    public Hedge(DeadlineScheduler scheduler, int percentile, int budgetPercent, long initialDelayMillis, long maxDelayMillis,
+                 long minAttemptMillis) {
+        if (percentile < 1 || percentile > 99 || initialDelayMillis < 0 || maxDelayMillis < 0 || minAttemptMillis < 0) {
+            throw new IllegalArgumentException("Invalid hedge: p" + percentile + ", budget " + budgetPercent + "%");
+        }
+        this.scheduler = scheduler;
+        this.percentile = percentile;
+        this.budget = new TokenBudget(budgetPercent, MAX_BUDGET);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.minAttemptNanos = TimeUnit.MILLISECONDS.toNanos(minAttemptMillis);
+        this.delayNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(initialDelayMillis), maxDelayNanos);
+    }
+
+    /**
+     * Executes the task, hedging its first attempt if it is slow.
+     * <p>
+     * Cancelling the returned future cancels every running attempt.
+     * </p>
+     *
+     * @param attempt Starts an attempt of the task.
+     * @param deadline The deadline the hedge must fit before.
+     * @return The future of the execution, completed with the first successful attempt, or with the failure of the
+     * last failed attempt.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> attempt, TaskDeadline deadline) {
+        budget.deposit();
+        var execution = new Execution<>(attempt, deadline);
+        execution.start(false);
+        if (!execution.result.isDone()) {
+            var timer = scheduler.schedule(delayNanos, TimeUnit.NANOSECONDS, execution::hedge);
+            execution.result.whenComplete((value, error) -> timer.cancel());
+        }
+        return execution.result;
+    }
+
+    /**
+     * Returns the current hedge delay in milliseconds.
+     */
+    public long delayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(delayNanos);
+    }
+
+    /**
+     * Returns the number of hedges that were started.
+     */
+    public long hedged() {
+        return hedged.sum();
+    }
+
+    /**
+     * Returns the number of executions completed by their hedge.
+     */
+    public long won() {
+        return won.sum();
+    }
+
+    /**
+     * Returns the number of hedges skipped because the budget was empty.
+     */
+    public long denied() {
+        return denied.sum();
+    }
+
+    /**
+     * Returns the number of hedges skipped because the shortest attempt no longer fit before the deadline.
+     */
+    public long beyondDeadline() {
+        return beyondDeadline.sum();
+    }
+
+    private void record(long latency) {
+        long[] snapshot = null;
+        synchronized (this) {
+            window[samples++ % WINDOW] = latency;
+            if (samples % REFRESH == 0) {
+                snapshot = Arrays.copyOf(window, Math.min(samples, WINDOW));
+            }
+            if (samples == 2 * WINDOW) {
+                samples = WINDOW;
+            }
+        }
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            delayNanos = Math.min(snapshot[(snapshot.length - 1) * percentile / 100], maxDelayNanos);
+        }
+    }
+
+    /**
+     * A single execution with its attempts.
+     */
+    private final class Execution<T> {
+
+        private final Supplier<CompletableFuture<T>> attempt;
+
+        private final TaskDeadline deadline;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /**
+         * The attempts of the execution, guarded by the monitor of the execution.
+         */
+        private final List<CompletableFuture<T>> attempts = new ArrayList<>(2);
+
+        /**
+         * Number of attempts that have not completed yet, guarded by the monitor of the execution.
+         */
+        private int running;
+
+        Execution(Supplier<CompletableFuture<T>> attempt, TaskDeadline deadline) {
+            this.attempt = attempt;
+            this.deadline = deadline;
+            result.whenComplete((value, error) -> {
+                List<CompletableFuture<T>> started;
+                synchronized (this) {
+                    started = List.copyOf(attempts);
+                }
+                started.forEach(run -> run.cancel(false));
+            });
+        }
+
+        void hedge() {
+            if (result.isDone()) {
+                return;
+            }
+            if (!deadline.allows(minAttemptNanos, TimeUnit.NANOSECONDS)) {
+                beyondDeadline.increment();
+                return;
+            }
+            if (!budget.withdraw()) {
+                denied.increment();
+                return;
+            }
+            hedged.increment();
+            start(true);
+        }
+
+        void start(boolean hedge) {
+            var startedAt = System.nanoTime();
+            CompletableFuture<T> run;
+            try {
+                run = attempt.get();
+            } catch (RuntimeException e) {
+                run = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) {
+                attempts.add(run);
+                running++;
+            }
+            if (result.isDone()) {
+                run.cancel(false);
+                return;
+            }
+            run.whenComplete((value, error) -> {
+                if (error == null) {
+                    record(System.nanoTime() - startedAt);
+                    if (result.complete(value) && hedge) {
+                        won.increment();
+                    }
+                    return;
+                }
+                boolean last;
+                synchronized (this) {
+                    last = --running == 0;
+                }
+                if (last) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+    }
+}
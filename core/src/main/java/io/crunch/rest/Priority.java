@@ -0,0 +1,15 @@
+package io.crunch.rest;
+
+/**
+ * Priority of a run of the long-running task, see {@link PriorityLanes}.
+ */
+public enum Priority {
+    /**
+     * A user waits for the run, it can use the whole capacity of the lanes and preempts the batch runs.
+     */
+    INTERACTIVE,
+    /**
+     * Nobody waits for the run interactively, it only uses the capacity left over by the interactive runs.
+     */
+    BATCH
+}
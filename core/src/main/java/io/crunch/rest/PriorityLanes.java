@@ -0,0 +1,216 @@
+package io.crunch.rest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Shares a fixed number of worker slots between an interactive and a batch lane.
+ * <p>
+ * Interactive runs can take any of the {@code capacity} slots, batch runs at most {@code capacity - reserved} of them,
+ * so {@code reserved} slots are always left for the interactive runs. Each lane is a FIFO queue, and a free slot goes
+ * to the batch lane only while no interactive run waits.
+ * </p>
+ *
+ * <h2>Preemption</h2>
+ * <p>
+ * An interactive run that finds every slot taken marks the latest running batch run as preempted. The batch run checks
+ * {@link Lease#isPreempted()} at its next safe point, releases its slot to the waiting interactive run and queues a new
+ * lease to continue where it stopped. At most one batch run is preempted per waiting interactive run.
+ * </p>
+ *
+ * <h2>Thread Safety</h2>
+ * <p>
+ * The lanes are guarded by the monitor of the lanes. The granted runs are started after the monitor is released, on
+ * the thread that submitted or released a lease.
+ * </p>
+ */
+public final class PriorityLanes {
+
+    private final int capacity;
+
+    private final int batchCapacity;
+
+    private final ArrayDeque<Lease> interactiveQueue = new ArrayDeque<>();
+
+    private final ArrayDeque<Lease> batchQueue = new ArrayDeque<>();
+
+    /**
+     * The running batch leases in the order they were granted.
+     */
+    private final ArrayDeque<Lease> batchRunning = new ArrayDeque<>();
+
+    private final LongAdder preempted = new LongAdder();
+
+    private int interactiveRunning;
+
+    /**
+     * Number of batch leases marked as preempted that still hold their slot.
+     */
+    private int preempting;
+
+    /**
+     * Creates priority lanes.
+     *
+     * @param capacity The number of slots of both lanes.
+     * @param reserved The number of slots the batch runs cannot take.
+     */
+    public PriorityLanes(int capacity, int reserved) {
+        if (capacity < 1 || reserved < 0 || reserved >= capacity) {
+            throw new IllegalArgumentException("Invalid priority lanes: capacity " + capacity + ", reserved " + reserved);
+        }
+        this.capacity = capacity;
+        this.batchCapacity = capacity - reserved;
+    }
+
+    /**
+     * Queues a run in the lane of its priority.
+     *
+     * @param priority The priority of the run.
+     * @param start Starts the run once it holds a slot, called at once if a slot is free.
+     * @return The lease of the run, which must be released when the run stops or is no longer needed.
+     */
+    public Lease submit(Priority priority, Consumer<Lease> start) {
+        var lease = new Lease(priority, start);
+        var granted = new ArrayList<Lease>(1);
+        synchronized (this) {
+            (priority == Priority.INTERACTIVE ? interactiveQueue : batchQueue).addLast(lease);
+            dispatch(granted);
+            if (lease.queued && priority == Priority.INTERACTIVE) {
+                preempt();
+            }
+        }
+        granted.forEach(Lease::start);
+        return lease;
+    }
+
+    public synchronized int running(Priority priority) {
+        return priority == Priority.INTERACTIVE ? interactiveRunning : batchRunning.size();
+    }
+
+    public synchronized int queued(Priority priority) {
+        return (priority == Priority.INTERACTIVE ? interactiveQueue : batchQueue).size();
+    }
+
+    /**
+     * Returns the number of batch runs that were preempted.
+     */
+    public long preempted() {
+        return preempted.sum();
+    }
+
+    /**
+     * Grants the free slots to the queued leases, guarded by the monitor.
+     */
+    private void dispatch(List<Lease> granted) {
+        while (interactiveRunning + batchRunning.size() < capacity) {
+            Lease next;
+            if (!interactiveQueue.isEmpty()) {
+                next = interactiveQueue.pollFirst();
+                interactiveRunning++;
+            } else if (!batchQueue.isEmpty() && batchRunning.size() < batchCapacity) {
+                next = batchQueue.pollFirst();
+                batchRunning.addLast(next);
+            } else {
+                return;
+            }
+            next.queued = false;
+            granted.add(next);
+        }
+    }
+
+    /**
+     * Marks the latest batch run that is not preempted yet if the waiting interactive runs outnumber the preempted
+     * batch runs, guarded by the monitor.
+     */
+    private void preempt() {
+        if (preempting >= interactiveQueue.size()) {
+            return;
+        }
+        var running = batchRunning.descendingIterator();
+        while (running.hasNext()) {
+            var lease = running.next();
+            if (!lease.preempted) {
+                lease.preempted = true;
+                preempting++;
+                preempted.increment();
+                return;
+            }
+        }
+    }
+
+    private void release(Lease lease) {
+        var granted = new ArrayList<Lease>(1);
+        synchronized (this) {
+            if (lease.released) {
+                return;
+            }
+            lease.released = true;
+            if (lease.queued) {
+                (lease.priority == Priority.INTERACTIVE ? interactiveQueue : batchQueue).remove(lease);
+                return;
+            }
+            if (lease.priority == Priority.INTERACTIVE) {
+                interactiveRunning--;
+            } else {
+                batchRunning.remove(lease);
+                if (lease.preempted) {
+                    preempting--;
+                }
+            }
+            dispatch(granted);
+        }
+        granted.forEach(Lease::start);
+    }
+
+    /**
+     * A queued or granted slot of a run.
+     */
+    public final class Lease {
+
+        private final Priority priority;
+
+        private final Consumer<Lease> start;
+
+        /**
+         * Guarded by the monitor of the lanes.
+         */
+        private boolean queued = true;
+
+        /**
+         * Guarded by the monitor of the lanes.
+         */
+        private boolean released;
+
+        private volatile boolean preempted;
+
+        Lease(Priority priority, Consumer<Lease> start) {
+            this.priority = priority;
+            this.start = start;
+        }
+
+        public Priority priority() {
+            return priority;
+        }
+
+        /**
+         * Returns whether the run should give its slot to a waiting interactive run at its next safe point.
+         */
+        public boolean isPreempted() {
+            return preempted;
+        }
+
+        /**
+         * Gives the slot back, or leaves the queue if the lease is still queued. Releasing a lease twice has no effect.
+         */
+        public void release() {
+            PriorityLanes.this.release(this);
+        }
+
+        private void start() {
+            start.accept(this);
+        }
+    }
+}
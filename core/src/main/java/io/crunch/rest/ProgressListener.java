@@ -0,0 +1,22 @@
+package io.crunch.rest;
+
+/**
+ * Receives the ticks of a run of the long-running activity task.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Listener that ignores the ticks.
+     */
+    ProgressListener NONE = (tick, duration) -> true;
+
+    /**
+     * Called after every tick of the run.
+     *
+     * @param tick The number of the completed tick, starting from 1.
+     * @param duration The total number of ticks of the run.
+     * @return {@code false} to cancel the run, for example because nobody listens to the progress anymore.
+     */
+    boolean onTick(int tick, int duration);
+}
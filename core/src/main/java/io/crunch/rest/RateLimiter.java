@@ -0,0 +1,147 @@
+package io.crunch.rest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets, refilled lazily.
+ * <p>
+ * Every client has a bucket of {@code burst} tokens, refilled with {@code ratePerSecond} tokens per second, and every
+ * request takes a token. A bucket is stored as the single instant at which it will be full again, the theoretical
+ * arrival time of the generic cell rate algorithm: a request pushes the instant one emission interval further, and it
+ * is rejected if the instant would move more than {@code burst} intervals past now. The refill is implied by the
+ * passing time, so no thread ever refills the buckets, and taking a token is one compare-and-set of an
+ * {@link AtomicLong}.
+ * </p>
+ *
+ * <h2>Eviction</h2>
+ * <p>
+ * The buckets live in a {@link ConcurrentHashMap}, whose bins are locked separately, and a bucket that is full again
+ * is equivalent to a missing one. At most once per {@code idle} period the request that notices it sweeps the map and
+ * removes the buckets that have been full for longer than {@code idle}. A removed bucket is marked dead first, so a
+ * request that still holds it looks it up again instead of taking a token from a bucket nobody sees anymore.
+ * </p>
+ * <p>
+ * The map holds about {@code maxClients} buckets. A client without a bucket is rejected while the map is full, so
+ * clients that keep inventing new keys cannot grow it without bound, they only lock out other new clients until the
+ * next sweep.
+ * </p>
+ */
+public final class RateLimiter {
+
+    /**
+     * Theoretical arrival time of a bucket removed from the map.
+     */
+    private static final long DEAD = Long.MIN_VALUE;
+
+    private final long intervalNanos;
+
+    private final long toleranceNanos;
+
+    private final long idleNanos;
+
+    private final int maxClients;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder evicted = new LongAdder();
+
+    private volatile long nextSweep;
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param ratePerSecond The number of tokens added to a bucket per second.
+     * @param burst The capacity of a bucket.
+     * @param idleSeconds The time a full bucket is kept before it is evicted.
+     * @param maxClients The maximum number of clients with a bucket.
+     */
+    public RateLimiter(double ratePerSecond, int burst, long idleSeconds, int maxClients) {
+        if (ratePerSecond <= 0 || burst < 1 || idleSeconds < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + ratePerSecond + "/s, burst " + burst);
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.maxClients = maxClients;
+        this.nextSweep = System.nanoTime() + idleNanos;
+    }
+
+    /**
+     * Takes a token from the bucket of the client.
+     *
+     * @param client The key of the client, for example its API key or address.
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until the bucket holds a token again, or
+     * one emission interval if the client has no bucket and the map is full.
+     */
+    public long tryAcquire(String client) {
+        var now = System.nanoTime();
+        if (now - nextSweep >= 0) {
+            sweep(now);
+        }
+        while (true) {
+            var bucket = buckets.get(client);
+            if (bucket == null) {
+                if (buckets.size() >= maxClients) {
+                    rejected.increment();
+                    return intervalNanos;
+                }
+                bucket = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+            }
+            var tat = bucket.get();
+            if (tat == DEAD) {
+                buckets.remove(client, bucket);
+                continue;
+            }
+            var next = Math.max(tat, now) + intervalNanos;
+            var wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of clients with a bucket.
+     */
+    public int clients() {
+        return buckets.size();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextSweep = now + idleNanos;
+            buckets.forEach((client, bucket) -> {
+                var tat = bucket.get();
+                if (tat != DEAD && now - tat >= idleNanos && bucket.compareAndSet(tat, DEAD)) {
+                    buckets.remove(client, bucket);
+                    evicted.increment();
+                }
+            });
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.crunch.rest;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries the failed attempts of a task with jittered exponential backoff.
+ * <p>
+ * An attempt that fails with a retryable error is retried up to {@code maxAttempts} attempts in total. The backoff
+ * before retry {@code n} is drawn uniformly between zero and {@code baseDelay * 2^(n-1)}, capped at {@code maxDelay},
+ * so the retries of the requests that failed together do not hit the task together again. The backoff is a timer of
+ * the {@link DeadlineScheduler}, no thread sleeps while an execution waits for its next attempt.
+ * </p>
+ *
+ * <h2>Deadline</h2>
+ * <p>
+ * A retry is only started if the backoff and the shortest possible attempt fit before the {@link TaskDeadline} of the
+ * execution, otherwise the execution fails with the error of its last attempt at once.
+ * </p>
+ *
+ * <h2>Budget</h2>
+ * <p>
+ * Every execution deposits {@code budgetPercent} hundredths of a retry into a {@link TokenBudget} and every retry
+ * withdraws a whole one. During an outage the budget runs dry and the failures are returned instead of being retried,
+ * so the retries cannot multiply the load of a task that fails anyway.
+ * </p>
+ */
+public final class Retry {
+
+    /**
+     * Maximum number of retries the budget can hold.
+     */
+    private static final int MAX_BUDGET = 10;
+
+    private final DeadlineScheduler scheduler;
+
+    private final int maxAttempts;
+
+    private final long baseDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private final long minAttemptNanos;
+
+    private final Predicate<Throwable> retryable;
+
+    private final TokenBudget budget;
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder denied = new LongAdder();
+
+    private final LongAdder beyondDeadline = new LongAdder();
+
+    /**
+     * Creates a retry policy.
+     *
+     * @param scheduler Schedules the backoff of the retries.
+     * @param maxAttempts The maximum number of attempts of an execution, including the first one.
+     * @param baseDelayMillis The upper bound of the backoff before the first retry.
+     * @param maxDelayMillis The upper bound of the backoff before any retry.
+     * @param minAttemptMillis The shortest time an attempt can take to succeed.
+     * @param budgetPercent The maximum share of the executions that are retried, in percent.
+     * @param retryable Selects the errors that are retried.
+     */
+    public Retry(DeadlineScheduler scheduler, int maxAttempts, long baseDelayMillis, long maxDelayMillis, long minAttemptMillis,
+                 int budgetPercent, Predicate<Throwable> retryable) {
+        if (maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis || minAttemptMillis < 0) {
+            throw new IllegalArgumentException("Invalid retry: " + maxAttempts + " attempts, " + baseDelayMillis + ".." + maxDelayMillis + "ms");
+        }
+        this.scheduler = scheduler;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = TimeUnit.MILLISECONDS.toNanos(baseDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.minAttemptNanos = TimeUnit.MILLISECONDS.toNanos(minAttemptMillis);
+        this.budget = new TokenBudget(budgetPercent, MAX_BUDGET);
+        this.retryable = retryable;
+    }
+
+    /**
+     * Executes the task, retrying its failed attempts.
+     * <p>
+     * Cancelling the returned future cancels the running attempt or the pending backoff.
+     * </p>
+     *
+     * @param attempt Starts an attempt of the task.
+     * @param deadline The deadline the retries must fit before.
+     * @return The future of the execution, completed with the first successful attempt or the error of the last one.
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> attempt, TaskDeadline deadline) {
+        budget.deposit();
+        var execution = new Execution<>(attempt, deadline);
+        execution.start(1);
+        return execution.result;
+    }
+
+    /**
+     * Returns the number of retries that were started.
+     */
+    public long retried() {
+        return retried.sum();
+    }
+
+    /**
+     * Returns the number of retries that succeeded.
+     */
+    public long succeeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * Returns the number of retries that failed.
+     */
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of retries skipped because the budget was empty.
+     */
+    public long denied() {
+        return denied.sum();
+    }
+
+    /**
+     * Returns the number of retries skipped because they could not finish before the deadline.
+     */
+    public long beyondDeadline() {
+        return beyondDeadline.sum();
+    }
+
+    /**
+     * Returns the number of retries the budget holds.
+     */
+    public long budget() {
+        return budget.available();
+    }
+
+    private long backoff(int retry) {
+        var ceiling = Math.min(maxDelayNanos, baseDelayNanos << Math.min(retry - 1, 30));
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * A single execution with its current attempt.
+     */
+    private final class Execution<T> {
+
+        private final Supplier<CompletableFuture<T>> attempt;
+
+        private final TaskDeadline deadline;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /**
+         * The latest attempt, cancelled with the result.
+         */
+        private volatile CompletableFuture<T> current;
+
+        /**
+         * The pending backoff before the next attempt, cancelled with the result.
+         */
+        private volatile DeadlineScheduler.Deadline backoff;
+
+        Execution(Supplier<CompletableFuture<T>> attempt, TaskDeadline deadline) {
+            this.attempt = attempt;
+            this.deadline = deadline;
+            result.whenComplete((value, error) -> {
+                var timer = backoff;
+                if (timer != null) {
+                    timer.cancel();
+                }
+                var run = current;
+                if (run != null) {
+                    run.cancel(false);
+                }
+            });
+        }
+
+        void start(int number) {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> run;
+            try {
+                run = attempt.get();
+            } catch (RuntimeException e) {
+                run = CompletableFuture.failedFuture(e);
+            }
+            current = run;
+            if (result.isDone()) {
+                run.cancel(false);
+                return;
+            }
+            run.whenComplete((value, error) -> {
+                if (number > 1 && !(error instanceof CancellationException)) {
+                    (error == null ? succeeded : failed).increment();
+                }
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    retry(number, error);
+                }
+            });
+        }
+
+        private void retry(int number, Throwable error) {
+            var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (number >= maxAttempts || !retryable.test(cause) || result.isDone()) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            var delay = backoff(number);
+            if (!deadline.allows(delay + minAttemptNanos, TimeUnit.NANOSECONDS)) {
+                beyondDeadline.increment();
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!budget.withdraw()) {
+                denied.increment();
+                result.completeExceptionally(cause);
+                return;
+            }
+            retried.increment();
+            backoff = scheduler.schedule(delay, TimeUnit.NANOSECONDS, () -> start(number + 1));
+            if (result.isDone()) {
+                backoff.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package io.crunch.rest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single in-flight task.
+ * <p>
+ * The first caller of a key starts the task, the callers that arrive while it runs attach to it. Every caller receives
+ * its own {@link CompletableFuture}, so a caller that times out or cancels its future only detaches itself and the
+ * other callers keep waiting. The shared task is cancelled when its last caller detached before it completed.
+ * </p>
+ * <p>
+ * A flight is removed from the map as soon as its task completes, so a later call starts a new task and a result is
+ * never served after its task finished.
+ * </p>
+ * <p>
+ * A task can be bound to the deadlines of its callers. It receives a {@link TaskDeadline#shared(TaskDeadline) shared}
+ * deadline that starts at the deadline of its creator and is extended by every caller that attaches, so it expires
+ * once the last caller timed out.
+ * </p>
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the results.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Attaches to the in-flight task of the key, or starts a new one.
+     *
+     * @param key The key of the task.
+     * @param task Starts the task if no task of the key is in flight.
+     * @return The future of the caller, completed with the result of the shared task. Cancelling it detaches the caller.
+     */
+    public CompletableFuture<V> join(K key, Supplier<CompletableFuture<V>> task) {
+        return join(key, TaskDeadline.NONE, deadline -> task.get());
+    }
+
+    /**
+     * Attaches to the in-flight task of the key, or starts a new one, and binds the task to the deadline of the caller.
+     *
+     * @param key The key of the task.
+     * @param deadline The deadline of the caller.
+     * @param task Starts the task with its shared deadline if no task of the key is in flight.
+     * @return The future of the caller, completed with the result of the shared task. Cancelling it detaches the caller.
+     */
+    public CompletableFuture<V> join(K key, TaskDeadline deadline, Function<TaskDeadline, CompletableFuture<V>> task) {
+        while (true) {
+            var flight = flights.get(key);
+            if (flight == null) {
+                // The creator is attached before the flight is published, so a caller that attaches and detaches at
+                // once cannot abandon the flight before its creator waits for it
+                var created = new Flight(key, TaskDeadline.shared(deadline));
+                flight = flights.putIfAbsent(key, created);
+                if (flight == null) {
+                    var waiter = created.waiter();
+                    start(created, task);
+                    return waiter;
+                }
+            }
+            var waiter = flight.attach(deadline);
+            if (waiter != null) {
+                return waiter;
+            }
+            // The flight was abandoned by its last caller, help removing it and retry
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Attaches to the in-flight task of the key if there is one, and binds the task to the deadline of the caller.
+     *
+     * @param key The key of the task.
+     * @param deadline The deadline of the caller.
+     * @return The future of the caller, completed with the result of the shared task, or {@code null} if no task of
+     * the key is in flight. Cancelling it detaches the caller.
+     */
+    public CompletableFuture<V> attach(K key, TaskDeadline deadline) {
+        while (true) {
+            var flight = flights.get(key);
+            if (flight == null) {
+                return null;
+            }
+            var waiter = flight.attach(deadline);
+            if (waiter != null) {
+                return waiter;
+            }
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns the number of keys with a task in flight.
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private void start(Flight flight, Function<TaskDeadline, CompletableFuture<V>> task) {
+        CompletableFuture<V> run;
+        try {
+            run = task.apply(flight.deadline);
+        } catch (RuntimeException e) {
+            run = CompletableFuture.failedFuture(e);
+        }
+        flight.run = run;
+        run.whenComplete((result, error) -> {
+            flights.remove(flight.key, flight);
+            if (error != null) {
+                flight.shared.completeExceptionally(error);
+            } else {
+                flight.shared.complete(result);
+            }
+        });
+        if (flight.isAbandoned()) {
+            run.cancel(false);
+        }
+    }
+
+    private final class Flight {
+
+        private final K key;
+
+        /**
+         * Number of attached callers, starting with the creator, {@code -1} once the last caller detached.
+         */
+        private final AtomicInteger waiters = new AtomicInteger(1);
+
+        private final CompletableFuture<V> shared = new CompletableFuture<>();
+
+        private final TaskDeadline deadline;
+
+        private volatile CompletableFuture<V> run;
+
+        Flight(K key, TaskDeadline deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+
+        CompletableFuture<V> attach(TaskDeadline callerDeadline) {
+            // Extend the deadline before attaching, the task must not stop while an attached caller still waits
+            deadline.extendTo(callerDeadline);
+            int current;
+            do {
+                current = waiters.get();
+                if (current < 0) {
+                    return null;
+                }
+            } while (!waiters.compareAndSet(current, current + 1));
+            return waiter();
+        }
+
+        /**
+         * Creates the future of a caller that is already counted as attached.
+         */
+        CompletableFuture<V> waiter() {
+            var waiter = new CompletableFuture<V>();
+            shared.whenComplete((result, error) -> {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(result);
+                }
+            });
+            waiter.whenComplete((result, error) -> detach());
+            return waiter;
+        }
+
+        boolean isAbandoned() {
+            return waiters.get() < 0;
+        }
+
+        private void detach() {
+            if (waiters.decrementAndGet() == 0 && waiters.compareAndSet(0, -1) && !shared.isDone()) {
+                flights.remove(key, this);
+                var current = run;
+                if (current != null) {
+                    current.cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.crunch.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Absolute deadline of a run of the long-running task, carried from the request into the task.
+ * <p>
+ * The deadline is a {@link System#nanoTime()} instant, so it is immune to wall clock adjustments. A task checks it when
+ * it is dequeued and at every tick, and gives the thread back instead of working on a response that would be ignored.
+ * </p>
+ * <p>
+ * The deadline of a request never changes. A {@link #shared(TaskDeadline) shared} deadline belongs to a run that serves
+ * several requests, and is {@link #extendTo(TaskDeadline) extended} to the latest deadline of the requests attached to
+ * it, so the run is only dropped or stopped once every request waiting for it has timed out.
+ * </p>
+ */
+public final class TaskDeadline {
+
+    /**
+     * Deadline of a run that is not bound to a request.
+     */
+    public static final TaskDeadline NONE = new TaskDeadline(0, false, false);
+
+    private final boolean shared;
+
+    private volatile long nanoTime;
+
+    private volatile boolean bounded;
+
+    private TaskDeadline(long nanoTime, boolean bounded, boolean shared) {
+        this.nanoTime = nanoTime;
+        this.bounded = bounded;
+        this.shared = shared;
+    }
+
+    /**
+     * Returns the deadline that expires after the given timeout from now.
+     */
+    public static TaskDeadline after(long timeout, TimeUnit unit) {
+        return new TaskDeadline(System.nanoTime() + unit.toNanos(timeout), true, false);
+    }
+
+    /**
+     * Returns a deadline of a shared run, starting at the deadline of the request that started the run.
+     */
+    public static TaskDeadline shared(TaskDeadline first) {
+        return new TaskDeadline(first.nanoTime, first.bounded, true);
+    }
+
+    /**
+     * Extends a shared deadline to the deadline of a request that attached to its run, if that one is later. A request
+     * without a deadline unbinds the run.
+     *
+     * @throws IllegalStateException If the deadline is not shared.
+     */
+    public synchronized void extendTo(TaskDeadline other) {
+        if (!shared) {
+            throw new IllegalStateException("Only a shared deadline can be extended");
+        }
+        if (!other.bounded) {
+            bounded = false;
+        } else if (bounded && other.nanoTime - nanoTime > 0) {
+            nanoTime = other.nanoTime;
+        }
+    }
+
+    /**
+     * Checks whether the deadline has passed.
+     */
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - nanoTime >= 0;
+    }
+
+    /**
+     * Checks whether work of the given duration started now can finish before the deadline.
+     */
+    public boolean allows(long duration, TimeUnit unit) {
+        return !bounded || nanoTime - System.nanoTime() >= unit.toNanos(duration);
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? TimeUnit.NANOSECONDS.toMillis(nanoTime - System.nanoTime()) + "ms" : "none";
+    }
+}
@@ -0,0 +1,70 @@
+package io.crunch.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget of the extra attempts of a task, such as hedges and retries.
+ * <p>
+ * Every execution deposits a share of a token and every extra attempt withdraws a whole one, so the extra attempts
+ * stay below that share of the executions. The budget holds at most {@code capacity} tokens, which bounds a burst of
+ * extra attempts after a quiet period. During an outage the budget runs dry, and the executions fail instead of
+ * multiplying the load on the struggling task.
+ * </p>
+ * <p>
+ * The tokens are kept in thousandths in a single {@link AtomicLong}, deposits and withdrawals are lock-free.
+ * </p>
+ */
+public final class TokenBudget {
+
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+
+    private final long capacity;
+
+    private final AtomicLong balance = new AtomicLong();
+
+    /**
+     * Creates an empty budget.
+     *
+     * @param percent The share of a token deposited by every execution, in percent.
+     * @param capacity The maximum number of tokens.
+     */
+    public TokenBudget(int percent, int capacity) {
+        if (percent < 0 || percent > 100 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid budget: " + percent + "%, " + capacity + " tokens");
+        }
+        this.deposit = percent * TOKEN / 100;
+        this.capacity = capacity * TOKEN;
+    }
+
+    /**
+     * Deposits the share of an execution.
+     */
+    public void deposit() {
+        balance.getAndUpdate(current -> Math.min(capacity, current + deposit));
+    }
+
+    /**
+     * Withdraws a token for an extra attempt.
+     *
+     * @return {@code true} if a token was withdrawn, {@code false} if the budget is exhausted.
+     */
+    public boolean withdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * Returns the number of whole tokens in the budget.
+     */
+    public long available() {
+        return balance.get() / TOKEN;
+    }
+}
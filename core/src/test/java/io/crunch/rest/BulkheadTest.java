@@ -0,0 +1,129 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private final List<String> started = new ArrayList<>();
+
+    private final List<CompletableFuture<String>> runs = new ArrayList<>();
+
+    @Test
+    void rejectsRequestsBeyondTheQueue() {
+        var bulkhead = new Bulkhead("test", new Bulkhead.Limits(1, 1, 500, 5000, 0, 1));
+
+        assertTrue(bulkhead.tryEnter().isPresent());
+        assertTrue(bulkhead.tryEnter().isPresent());
+        assertTrue(bulkhead.tryEnter().isEmpty());
+
+        assertEquals(1, bulkhead.running());
+        assertEquals(1, bulkhead.queued());
+        assertEquals(1, bulkhead.rejected());
+    }
+
+    @Test
+    void finishedRequestPassesItsPermitToTheOldestWaiting() {
+        var bulkhead = new Bulkhead("test", new Bulkhead.Limits(1, 2, 500, 5000, 0, 1));
+        var first = enter(bulkhead, "first");
+        var second = enter(bulkhead, "second");
+        enter(bulkhead, "third");
+
+        runs.getFirst().complete("activities");
+
+        assertEquals("activities", first.join());
+        assertEquals(List.of("first", "second"), started);
+        assertEquals(1, bulkhead.running());
+        assertEquals(1, bulkhead.queued());
+
+        second.cancel(false);
+
+        assertEquals(List.of("first", "second", "third"), started);
+        assertEquals(0, bulkhead.queued());
+    }
+
+    @Test
+    void cancelledWaitingRequestLeavesTheQueue() {
+        var bulkhead = new Bulkhead("test", new Bulkhead.Limits(1, 1, 500, 5000, 0, 1));
+        enter(bulkhead, "running");
+        var waiting = enter(bulkhead, "waiting");
+
+        waiting.cancel(false);
+        runs.getFirst().complete("activities");
+
+        assertEquals(List.of("running"), started);
+        assertEquals(0, bulkhead.running());
+        assertEquals(0, bulkhead.queued());
+        assertEquals(0, bulkhead.shed());
+    }
+
+    @Test
+    void shedsRequestThatWaitedBeyondTheMaximumSojourn() {
+        var bulkhead = new Bulkhead("test", new Bulkhead.Limits(1, 1, 500, 5000, 20, 1));
+        enter(bulkhead, "running");
+        var waiting = enter(bulkhead, "waiting");
+
+        sleep(50);
+        runs.getFirst().complete("activities");
+
+        assertShed(waiting);
+        assertEquals(List.of("running"), started);
+        assertEquals(1, bulkhead.shed());
+        assertEquals(0, bulkhead.running());
+    }
+
+    @Test
+    void standingQueueIsShedAfterAnIntervalAboveTheTarget() {
+        var bulkhead = new Bulkhead("test", new Bulkhead.Limits(1, 3, 10, 30, 0, 1));
+        enter(bulkhead, "first");
+        enter(bulkhead, "second");
+        var third = enter(bulkhead, "third");
+
+        sleep(50);
+        runs.getFirst().complete("activities");
+        assertEquals(List.of("first", "second"), started);
+        var fourth = enter(bulkhead, "fourth");
+
+        sleep(50);
+        runs.get(1).complete("activities");
+
+        assertTrue(bulkhead.isOverloaded());
+        assertShed(third);
+        assertShed(fourth);
+        assertEquals(2, bulkhead.shed());
+        assertEquals(0, bulkhead.queued());
+    }
+
+    private CompletableFuture<String> enter(Bulkhead bulkhead, String name) {
+        return bulkhead.tryEnter().orElseThrow().run(() -> {
+            started.add(name);
+            var run = new CompletableFuture<String>();
+            runs.add(run);
+            return run;
+        });
+    }
+
+    private static void assertShed(CompletableFuture<String> request) {
+        var error = assertThrows(CompletionException.class, request::join);
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CircuitBreakerTest {
+
+    private final AtomicInteger started = new AtomicInteger();
+
+    @Test
+    void opensAtFailureRateAndRejectsWithoutCalling() {
+        var breaker = breaker(60_000, 1);
+
+        fail(breaker, 4);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        var rejected = breaker.execute(this::pending);
+        var error = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        assertEquals(4, started.get());
+        assertEquals(1, breaker.rejected());
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheProbesThrough() {
+        var breaker = breaker(0, 2);
+        fail(breaker, 4);
+
+        var probes = List.of(breaker.execute(this::pending), breaker.execute(this::pending));
+        var rejected = breaker.execute(this::pending);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        var error = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(ServiceUnavailableException.class, error.getCause());
+        assertEquals(6, started.get());
+
+        probes.get(0).complete("activities");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        probes.get(1).complete("activities");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.failureRate());
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        var breaker = breaker(0, 2);
+        fail(breaker, 4);
+
+        breaker.execute(this::pending).completeExceptionally(new IllegalStateException("probe failed"));
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2, breaker.opened());
+    }
+
+    @Test
+    void cancelledProbeIsGivenBack() {
+        var breaker = breaker(0, 1);
+        fail(breaker, 4);
+
+        breaker.execute(this::pending).cancel(false);
+        var probe = breaker.execute(this::pending);
+        probe.complete("activities");
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(0, breaker.rejected());
+    }
+
+    @Test
+    void halfOpenClosesWhileTheFailedProbesStayBelowTheRate() {
+        var breaker = new CircuitBreaker("test", new CircuitBreaker.Settings(10, 4, 75, 60_000, 100, 0, 4, 5));
+        fail(breaker, 4);
+
+        var probes = List.of(breaker.execute(this::pending), breaker.execute(this::pending),
+                breaker.execute(this::pending), breaker.execute(this::pending));
+        probes.get(0).completeExceptionally(new IllegalStateException("probe failed"));
+        probes.get(1).completeExceptionally(new IllegalStateException("probe failed"));
+        probes.get(2).complete("activities");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        probes.get(3).complete("activities");
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void halfOpenOpensOnceTheFailedProbesReachTheRate() {
+        var breaker = new CircuitBreaker("test", new CircuitBreaker.Settings(10, 4, 75, 60_000, 100, 0, 4, 5));
+        fail(breaker, 4);
+
+        var probes = List.of(breaker.execute(this::pending), breaker.execute(this::pending),
+                breaker.execute(this::pending), breaker.execute(this::pending));
+        for (int i = 0; i < 3; i++) {
+            probes.get(i).completeExceptionally(new IllegalStateException("probe failed"));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2, breaker.opened());
+    }
+
+    @Test
+    void rejectionBeyondTheDeadlineIsASlowCall() {
+        var breaker = new CircuitBreaker("test", new CircuitBreaker.Settings(10, 4, 50, 60_000, 50, 60_000, 1, 5));
+
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(this::pending).completeExceptionally(new ServiceUnavailableException("beyond deadline"));
+        }
+
+        assertEquals(0, breaker.failureRate());
+        assertEquals(100, breaker.slowCallRate());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void taskFailingHalfOfItsRunsByDesignKeepsTheBreakerClosed() {
+        var breaker = new CircuitBreaker("activity", new CircuitBreaker.Settings(100, 100, 75, 7500, 80, 5000, 10, 5));
+        var random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            breaker.execute(() -> designedRun(random));
+        }
+
+        assertEquals(0, breaker.opened());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void halfOpenClosesAtTheDesignedFailureRate() {
+        var breaker = new CircuitBreaker("activity", new CircuitBreaker.Settings(100, 100, 75, 7500, 80, 0, 10, 5));
+        fail(breaker, 100);
+        var random = new Random(42);
+
+        for (int i = 0; i < 100 && breaker.state() != CircuitBreaker.State.CLOSED; i++) {
+            breaker.execute(() -> designedRun(random));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void sharedRunIsRecordedOnce() {
+        var breaker = breaker(60_000, 1);
+        var flights = new SingleFlight<String, String>();
+        var run = new CompletableFuture<String>();
+        var waiters = new ArrayList<CompletableFuture<String>>();
+
+        for (int i = 0; i < 5; i++) {
+            waiters.add(flights.join("key", () -> breaker.execute(() -> run)));
+        }
+        run.completeExceptionally(new IllegalStateException("run failed"));
+
+        waiters.forEach(waiter -> assertThrows(CompletionException.class, waiter::join));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(100, breaker.failureRate());
+        fail(breaker, 3);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private CircuitBreaker breaker(long openMillis, int probes) {
+        return new CircuitBreaker("test", new CircuitBreaker.Settings(10, 4, 50, 60_000, 100, openMillis, probes, 5));
+    }
+
+    private void fail(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.execute(this::pending).completeExceptionally(new IllegalStateException("run failed"));
+        }
+    }
+
+    /**
+     * A run of the activity task with the default timeout: half of the runs fail at once, and 4 of the 7 durations of
+     * the others cannot finish before the deadline.
+     */
+    private static CompletableFuture<String> designedRun(Random random) {
+        if (random.nextBoolean()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("An error occurred"));
+        }
+        if (random.nextInt(7) >= 3) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("beyond deadline"));
+        }
+        return CompletableFuture.completedFuture("activities");
+    }
+
+    private CompletableFuture<String> pending() {
+        started.incrementAndGet();
+        return new CompletableFuture<>();
+    }
+}
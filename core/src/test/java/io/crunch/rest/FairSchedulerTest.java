@@ -0,0 +1,94 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairSchedulerTest {
+
+    private final List<String> started = new ArrayList<>();
+
+    private final List<CompletableFuture<String>> runs = new ArrayList<>();
+
+    @Test
+    void startsBackloggedTenantsInProportionToTheirWeight() {
+        var scheduler = new FairScheduler(1, Map.of("gold", 2), 1);
+        scheduler.submit("blocker", () -> task("blocker"));
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit("gold", () -> task("gold"));
+        }
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit("silver", () -> task("silver"));
+        }
+        assertEquals(8, scheduler.queued());
+        assertEquals(2, scheduler.backlogged());
+
+        for (int i = 0; i < 8; i++) {
+            runs.get(i).complete("activities");
+        }
+
+        assertEquals(List.of("blocker", "gold", "gold", "silver", "gold", "gold", "silver", "silver", "silver"), started);
+        assertEquals(0, scheduler.queued());
+        assertEquals(0, scheduler.backlogged());
+    }
+
+    @Test
+    void burstOfOneTenantDelaysAnotherByOneRound() {
+        var scheduler = new FairScheduler(2, Map.of(), 1);
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit("noisy", () -> task("noisy"));
+        }
+        scheduler.submit("quiet", () -> task("quiet"));
+
+        runs.get(0).complete("activities");
+        runs.get(1).complete("activities");
+
+        assertEquals(List.of("noisy", "noisy", "noisy", "quiet"), started);
+    }
+
+    @Test
+    void cancelledWaitingTaskLeavesItsQueue() {
+        var scheduler = new FairScheduler(1, Map.of(), 1);
+        scheduler.submit("first", () -> task("first"));
+        var waiting = scheduler.submit("second", () -> task("second"));
+        scheduler.submit("third", () -> task("third"));
+
+        waiting.cancel(false);
+        assertEquals(1, scheduler.queued());
+        runs.getFirst().complete("activities");
+
+        assertEquals(List.of("first", "third"), started);
+        assertEquals(1, scheduler.running());
+        assertEquals(0, scheduler.queued());
+    }
+
+    @Test
+    void releasesSlotOfFailedAndCancelledTasks() {
+        var scheduler = new FairScheduler(1, Map.of(), 1);
+        var running = scheduler.submit("tenant", () -> task("first"));
+        scheduler.submit("tenant", () -> {
+            started.add("failing");
+            throw new IllegalStateException("Executor shut down");
+        });
+        scheduler.submit("tenant", () -> task("last"));
+
+        running.cancel(false);
+
+        assertTrue(runs.getFirst().isCancelled());
+        assertEquals(List.of("first", "failing", "last"), started);
+        assertEquals(1, scheduler.running());
+    }
+
+    private CompletableFuture<String> task(String name) {
+        started.add(name);
+        var run = new CompletableFuture<String>();
+        runs.add(run);
+        return run;
+    }
+}
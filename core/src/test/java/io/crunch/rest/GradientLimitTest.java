@@ -0,0 +1,82 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientLimitTest {
+
+    private static final long RTT = 8_000_000_000L;
+
+    @Test
+    void flatLatencyGrowsTheLimitToTheMaximum() {
+        var gradient = new GradientLimit(20, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            gradient.update(RTT, gradient.limit());
+        }
+
+        assertEquals(100, gradient.limit());
+    }
+
+    @Test
+    void idleEndpointKeepsItsLimit() {
+        var gradient = new GradientLimit(20, 1, 100);
+
+        for (int i = 0; i < 200; i++) {
+            gradient.update(RTT, 5);
+        }
+
+        assertEquals(20, gradient.limit());
+    }
+
+    @Test
+    void singleSlowRequestBarelyMovesTheLimit() {
+        var gradient = new GradientLimit(50, 1, 100);
+        for (int i = 0; i < 50; i++) {
+            gradient.update(RTT, 40);
+        }
+        var limit = gradient.limit();
+
+        gradient.update(100 * RTT, limit);
+
+        assertTrue(gradient.limit() >= limit * 0.9, "limit " + gradient.limit() + " after " + limit);
+    }
+
+    @Test
+    void settlesWithinTheToleranceOfAQueueingServer() {
+        var workers = 40;
+        var gradient = new GradientLimit(20, 1, 200);
+
+        var min = Integer.MAX_VALUE;
+        var max = 0;
+        for (int i = 0; i < 2000; i++) {
+            var inflight = gradient.limit();
+            // Requests beyond the workers queue for them, so the latency grows with the excess
+            gradient.update(inflight <= workers ? RTT : RTT * inflight / workers, inflight);
+            if (i >= 1000) {
+                min = Math.min(min, gradient.limit());
+                max = Math.max(max, gradient.limit());
+            }
+        }
+
+        assertTrue(min > workers, "limit " + min + " not above " + workers + " workers");
+        assertTrue(max < workers * 2, "limit " + max + " not below " + 2 * workers);
+        assertTrue(max - min <= 2, "limit between " + min + " and " + max);
+    }
+
+    @Test
+    void standingQueueShrinksTheLimitToTheMinimum() {
+        var gradient = new GradientLimit(50, 5, 100);
+        gradient.update(RTT, 50);
+
+        var rtt = RTT;
+        for (int i = 0; i < 200; i++) {
+            rtt = rtt * 11 / 10;
+            gradient.update(rtt, gradient.limit());
+        }
+
+        assertEquals(5, gradient.limit());
+    }
+}
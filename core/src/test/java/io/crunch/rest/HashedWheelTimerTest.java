@@ -0,0 +1,101 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(Thread.ofPlatform().daemon().factory(), Runnable::run,
+            10, TimeUnit.MILLISECONDS, 4);
+
+    @AfterEach
+    void close() {
+        timer.close();
+    }
+
+    @Test
+    void expiresNotBeforeItsDelay() throws InterruptedException {
+        timer.start();
+        var expired = new CountDownLatch(1);
+
+        var start = System.nanoTime();
+        var deadline = timer.schedule(50, TimeUnit.MILLISECONDS, expired::countDown);
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.cancel());
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void deadlineBeyondOneRoundExpiresInItsRound() throws InterruptedException {
+        timer.start();
+        var expired = new CountDownLatch(1);
+
+        var start = System.nanoTime();
+        timer.schedule(150, TimeUnit.MILLISECONDS, expired::countDown);
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        var elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 150, "expired after " + elapsed + " ms");
+    }
+
+    @Test
+    void cancelledDeadlineNeverExpires() throws InterruptedException {
+        timer.start();
+        var expired = new AtomicInteger();
+
+        var deadline = timer.schedule(30, TimeUnit.MILLISECONDS, expired::incrementAndGet);
+
+        assertTrue(deadline.cancel());
+        assertFalse(deadline.cancel());
+        assertEquals(0, timer.pending());
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(0, expired.get());
+        assertFalse(deadline.isExpired());
+    }
+
+    @Test
+    void cancellationOnlyRemovesItsOwnDeadline() throws InterruptedException {
+        timer.start();
+        var expired = new CountDownLatch(500);
+        var cancelledExpired = new AtomicInteger();
+
+        var deadlines = new ArrayList<DeadlineScheduler.Deadline>();
+        for (int i = 0; i < 1000; i++) {
+            deadlines.add(timer.schedule(20 + i % 50, TimeUnit.MILLISECONDS,
+                    i % 2 == 0 ? cancelledExpired::incrementAndGet : expired::countDown));
+        }
+        for (int i = 0; i < deadlines.size(); i += 2) {
+            assertTrue(deadlines.get(i).cancel());
+        }
+
+        assertTrue(expired.await(2, TimeUnit.SECONDS));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(0, cancelledExpired.get());
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void rejectsDeadlinesUnlessRunning() {
+        assertThrows(IllegalStateException.class, () -> timer.schedule(1, TimeUnit.SECONDS, () -> { }));
+
+        timer.start();
+        var deadline = timer.schedule(1, TimeUnit.SECONDS, () -> { });
+        timer.close();
+
+        assertThrows(IllegalStateException.class, () -> timer.schedule(1, TimeUnit.SECONDS, () -> { }));
+        assertFalse(deadline.isExpired());
+    }
+}
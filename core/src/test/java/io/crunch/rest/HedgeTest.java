@@ -0,0 +1,140 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgeTest {
+
+    private final List<Long> delays = new ArrayList<>();
+
+    private final List<Runnable> hedges = new ArrayList<>();
+
+    private final DeadlineScheduler scheduler = (delay, unit, onExpiry) -> {
+        delays.add(unit.toMillis(delay));
+        hedges.add(onExpiry);
+        return new DeadlineScheduler.Deadline() {
+            @Override
+            public boolean cancel() {
+                return true;
+            }
+
+            @Override
+            public boolean isExpired() {
+                return false;
+            }
+        };
+    };
+
+    @Test
+    void initialDelayIsCappedAtMaximum() {
+        var hedge = new Hedge(scheduler, 50, 100, 5000, 3000, 0);
+
+        hedge.execute(CompletableFuture::new, TaskDeadline.NONE);
+
+        assertEquals(3000, hedge.delayMillis());
+        assertEquals(List.of(3000L), delays);
+    }
+
+    @Test
+    void percentileOfSlowAttemptsIsCappedAtMaximum() {
+        var hedge = new Hedge(scheduler, 50, 100, 0, 1, 0);
+
+        for (int i = 0; i < 32; i++) {
+            hedge.execute(() -> {
+                sleep(3);
+                return CompletableFuture.completedFuture("activities");
+            }, TaskDeadline.NONE);
+        }
+
+        assertEquals(1, hedge.delayMillis());
+    }
+
+    @Test
+    void slowAttemptIsHedgedAndTheFirstSuccessWins() {
+        var hedge = new Hedge(scheduler, 50, 100, 2000, 3000, 0);
+        var attempts = new ArrayList<CompletableFuture<String>>();
+        var started = new AtomicInteger();
+
+        var result = hedge.execute(() -> {
+            started.incrementAndGet();
+            var attempt = new CompletableFuture<String>();
+            attempts.add(attempt);
+            return attempt;
+        }, TaskDeadline.NONE);
+        hedges.getFirst().run();
+        attempts.get(1).complete("activities");
+
+        assertEquals(2, started.get());
+        assertEquals("activities", result.join());
+        assertTrue(attempts.getFirst().isCancelled());
+        assertEquals(1, hedge.won());
+    }
+
+    @Test
+    void hedgeOfASlowAttemptWinsBeforeTheDeadline() {
+        var executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // The task scaled down to milliseconds: a timeout of 800, the shortest attempt 250 and the hedge after 100
+            var hedge = new Hedge(new ExecutorDeadlineScheduler(executor), 50, 100, 100, 100, 250);
+            var deadline = TaskDeadline.after(800, TimeUnit.MILLISECONDS);
+            var durations = new ArrayDeque<>(List.of(700L, 250L));
+            var startedAt = System.nanoTime();
+
+            var result = hedge.execute(() -> task(durations.removeFirst(), deadline), deadline);
+
+            // Only the hedge can finish before the 700 milliseconds of the first attempt
+            assertEquals("activities", result.join());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 700);
+            assertEquals(1, hedge.hedged());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void hedgeDelayedUntilTheShortestAttemptNoLongerFitsIsSkipped() {
+        var executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // A delay of the timeout minus the shortest attempt leaves the hedge no time at all
+            var hedge = new Hedge(new ExecutorDeadlineScheduler(executor), 50, 100, 550, 550, 250);
+            var deadline = TaskDeadline.after(800, TimeUnit.MILLISECONDS);
+
+            var result = hedge.execute(() -> task(700, deadline), deadline);
+
+            assertEquals("activities", result.join());
+            assertEquals(0, hedge.hedged());
+            assertEquals(1, hedge.beyondDeadline());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs like the activity task, rejecting a run that cannot finish before the deadline.
+     */
+    private static CompletableFuture<String> task(long durationMillis, TaskDeadline deadline) {
+        if (!deadline.allows(durationMillis, TimeUnit.MILLISECONDS)) {
+            return CompletableFuture.failedFuture(new ServiceUnavailableException("Beyond the deadline"));
+        }
+        return CompletableFuture.supplyAsync(() -> "activities", CompletableFuture.delayedExecutor(durationMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityLanesTest {
+
+    private final List<String> started = new ArrayList<>();
+
+    @Test
+    void batchRunsLeaveTheReservedSlots() {
+        var lanes = new PriorityLanes(3, 1);
+
+        var leases = new ArrayList<PriorityLanes.Lease>();
+        for (int i = 0; i < 3; i++) {
+            leases.add(lanes.submit(Priority.BATCH, lease -> started.add("batch")));
+        }
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("interactive"));
+
+        assertEquals(List.of("batch", "batch", "interactive"), started);
+        assertEquals(2, lanes.running(Priority.BATCH));
+        assertEquals(1, lanes.queued(Priority.BATCH));
+        assertEquals(0, lanes.preempted());
+
+        leases.getFirst().release();
+        assertEquals(List.of("batch", "batch", "interactive", "batch"), started);
+    }
+
+    @Test
+    void waitingInteractiveRunPreemptsTheLatestBatchRun() {
+        var lanes = new PriorityLanes(2, 1);
+        var first = lanes.submit(Priority.BATCH, lease -> started.add("batch"));
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("interactive"));
+        var waiting = lanes.submit(Priority.INTERACTIVE, lease -> started.add("waiting"));
+
+        assertTrue(first.isPreempted());
+        assertEquals(1, lanes.preempted());
+        assertEquals(1, lanes.queued(Priority.INTERACTIVE));
+
+        first.release();
+
+        assertEquals(List.of("batch", "interactive", "waiting"), started);
+        assertEquals(0, lanes.running(Priority.BATCH));
+        assertEquals(2, lanes.running(Priority.INTERACTIVE));
+        assertFalse(waiting.isPreempted());
+    }
+
+    @Test
+    void preemptsOneBatchRunPerWaitingInteractiveRun() {
+        var lanes = new PriorityLanes(3, 1);
+        var older = lanes.submit(Priority.BATCH, lease -> started.add("older"));
+        var latest = lanes.submit(Priority.BATCH, lease -> started.add("latest"));
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("interactive"));
+
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("waiting"));
+
+        assertTrue(latest.isPreempted());
+        assertFalse(older.isPreempted());
+        assertEquals(1, lanes.preempted());
+
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("second waiting"));
+
+        assertTrue(older.isPreempted());
+        assertEquals(2, lanes.preempted());
+    }
+
+    @Test
+    void queuedInteractiveRunStartsBeforeQueuedBatchRun() {
+        var lanes = new PriorityLanes(2, 1);
+        var running = lanes.submit(Priority.INTERACTIVE, lease -> started.add("running"));
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("second"));
+        lanes.submit(Priority.BATCH, lease -> started.add("batch"));
+        lanes.submit(Priority.INTERACTIVE, lease -> started.add("interactive"));
+
+        running.release();
+
+        assertEquals(List.of("running", "second", "interactive"), started);
+        assertEquals(1, lanes.queued(Priority.BATCH));
+    }
+
+    @Test
+    void releasedQueuedLeaseLeavesItsLane() {
+        var lanes = new PriorityLanes(1, 0);
+        var running = lanes.submit(Priority.INTERACTIVE, lease -> started.add("running"));
+        var queued = lanes.submit(Priority.BATCH, lease -> started.add("queued"));
+
+        queued.release();
+        running.release();
+        queued.release();
+
+        assertEquals(List.of("running"), started);
+        assertEquals(0, lanes.queued(Priority.BATCH));
+        assertEquals(0, lanes.running(Priority.INTERACTIVE));
+    }
+}
@@ -0,0 +1,49 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void allowsBurstThenRejectsUntilRefilled() throws InterruptedException {
+        var limiter = new RateLimiter(10, 3, 60, 10);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("client"));
+        }
+        var wait = limiter.tryAcquire("client");
+
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100), "wait " + wait);
+        assertEquals(1, limiter.rejected());
+        TimeUnit.NANOSECONDS.sleep(wait + TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire("client"));
+    }
+
+    @Test
+    void limitsClientsSeparately() {
+        var limiter = new RateLimiter(1e-3, 1, 60, 10);
+
+        assertEquals(0, limiter.tryAcquire("first"));
+        assertTrue(limiter.tryAcquire("first") > 0);
+        assertEquals(0, limiter.tryAcquire("second"));
+        assertEquals(2, limiter.clients());
+    }
+
+    @Test
+    void rejectsNewClientsWhileMapIsFull() {
+        var limiter = new RateLimiter(1e-3, 100, 60, 2);
+
+        assertEquals(0, limiter.tryAcquire("first"));
+        assertEquals(0, limiter.tryAcquire("second"));
+
+        assertTrue(limiter.tryAcquire("third") > 0);
+        assertEquals(0, limiter.tryAcquire("first"));
+        assertEquals(2, limiter.clients());
+        assertEquals(1, limiter.rejected());
+    }
+}
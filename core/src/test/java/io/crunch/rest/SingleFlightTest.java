@@ -0,0 +1,179 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    @Test
+    void sharesOneRunBetweenConcurrentCallers() {
+        var started = new AtomicInteger();
+        var run = new CompletableFuture<String>();
+
+        var first = flights.join("key", () -> {
+            started.incrementAndGet();
+            return run;
+        });
+        var second = flights.join("key", () -> {
+            started.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        run.complete("result");
+
+        assertEquals(1, started.get());
+        assertEquals("result", first.join());
+        assertEquals("result", second.join());
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    void cancelsRunOnlyWhenLastCallerDetached() {
+        var run = new CompletableFuture<String>();
+        var first = flights.join("key", () -> run);
+        var second = flights.join("key", CompletableFuture::new);
+
+        first.cancel(false);
+        assertFalse(run.isCancelled());
+
+        second.cancel(false);
+        assertTrue(run.isCancelled());
+        assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    void startsNewRunAfterAbandonedFlight() {
+        var abandoned = new CompletableFuture<String>();
+        flights.join("key", () -> abandoned).cancel(false);
+
+        var run = new CompletableFuture<String>();
+        var waiter = flights.join("key", () -> run);
+        run.complete("result");
+
+        assertTrue(abandoned.isCancelled());
+        assertEquals("result", waiter.join());
+    }
+
+    @Test
+    void failsCallersWhenTaskCannotStart() {
+        var waiter = flights.join("key", () -> {
+            throw new IllegalStateException("Rejected");
+        });
+
+        assertTrue(waiter.isCompletedExceptionally());
+        assertEquals(0, flights.inFlight());
+    }
+
+    /**
+     * Callers that attach and detach at once while other callers create flights must never leave a creator without its
+     * future, nor start a run that nobody waits for.
+     */
+    @Test
+    void creatorIsNotAbandonedByCallerDetachingAtOnce() throws Exception {
+        var threads = 8;
+        var rounds = 2_000;
+        var barrier = new CyclicBarrier(threads);
+        var runs = new ArrayList<CompletableFuture<String>>();
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var workers = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int i = 0; i < rounds; i++) {
+                        var run = new CompletableFuture<String>();
+                        var waiter = flights.join("key", () -> {
+                            synchronized (runs) {
+                                runs.add(run);
+                            }
+                            return run;
+                        });
+                        assertNotNull(waiter);
+                        waiter.cancel(false);
+                    }
+                    return null;
+                }));
+            }
+            for (var worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, flights.inFlight());
+        synchronized (runs) {
+            assertTrue(runs.stream().allMatch(CompletableFuture::isCancelled));
+        }
+    }
+
+    @Test
+    void waitersOfCompletedRunAreReleased() throws InterruptedException {
+        var run = new CompletableFuture<String>();
+        var waiters = new ArrayList<CompletableFuture<String>>(List.of(flights.join("key", () -> run)));
+        for (int i = 0; i < 10; i++) {
+            waiters.add(flights.join("key", CompletableFuture::new));
+        }
+        var done = new CountDownLatch(waiters.size());
+        waiters.forEach(waiter -> waiter.whenComplete((result, error) -> done.countDown()));
+
+        run.completeExceptionally(new IllegalStateException("An error occurred"));
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(waiters.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+    }
+
+    @Test
+    void sharedDeadlineIsTheLatestOfTheCallers() {
+        var shared = new AtomicReference<TaskDeadline>();
+        flights.join("key", TaskDeadline.after(1, TimeUnit.SECONDS), deadline -> {
+            shared.set(deadline);
+            return new CompletableFuture<>();
+        });
+
+        assertFalse(shared.get().allows(2, TimeUnit.SECONDS));
+        flights.join("key", TaskDeadline.after(5, TimeUnit.SECONDS), deadline -> new CompletableFuture<>());
+        assertTrue(shared.get().allows(2, TimeUnit.SECONDS));
+        flights.join("key", TaskDeadline.after(10, TimeUnit.MILLISECONDS), deadline -> new CompletableFuture<>());
+        assertTrue(shared.get().allows(2, TimeUnit.SECONDS));
+        flights.join("key", TaskDeadline.NONE, deadline -> new CompletableFuture<>());
+        assertTrue(shared.get().allows(1, TimeUnit.HOURS));
+    }
+
+    @Test
+    void attachesOnlyToARunInFlight() {
+        assertNull(flights.attach("key", TaskDeadline.NONE));
+
+        var shared = new AtomicReference<TaskDeadline>();
+        var run = new CompletableFuture<String>();
+        var first = flights.join("key", TaskDeadline.after(1, TimeUnit.SECONDS), deadline -> {
+            shared.set(deadline);
+            return run;
+        });
+        var attached = flights.attach("key", TaskDeadline.after(5, TimeUnit.SECONDS));
+
+        assertNotNull(attached);
+        assertTrue(shared.get().allows(2, TimeUnit.SECONDS));
+        run.complete("result");
+        assertEquals("result", first.join());
+        assertEquals("result", attached.join());
+        assertNull(flights.attach("key", TaskDeadline.NONE));
+    }
+}
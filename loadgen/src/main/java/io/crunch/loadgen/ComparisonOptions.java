@@ -0,0 +1,196 @@
+package io.crunch.loadgen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Settings of a comparison run, parsed from the command line of the {@link ComparisonSuite}.
+ *
+ * @param servers The servers to compare, each is started, loaded with every workload and stopped in turn.
+ * @param endpoints The activity endpoints the workloads are run against.
+ * @param workloads The workload profiles, run in order.
+ * @param variants The configurations the servers are compared in, each restarts every server.
+ * @param rate The base arrival rate in requests per second the workloads are scaled by.
+ * @param duration The measured part of the ramp workloads.
+ * @param pause The idle time after a workload, so the runs the disconnected clients left behind end before the next.
+ * @param project The root of the repository, with the built Quarkus and WildFly modules.
+ * @param wildflyHome The WildFly installation the WAR is deployed to.
+ * @param jvmArgs The JVM options of both servers, the same heap keeps the memory comparable.
+ * @param properties The configuration of both servers, passed as system properties.
+ * @param startupTimeout How long a server may take until it answers.
+ * @param report The Markdown file the report is written to.
+ */
+public record ComparisonOptions(List<Server> servers, List<String> endpoints, List<Workload> workloads,
+                                List<Variant> variants, double rate, Duration duration, Duration pause, Path project, Path wildflyHome, List<String> jvmArgs,
+                                Map<String, String> properties, Duration startupTimeout, Path report) {
+
+    static final String USAGE = """
+            Usage: java -cp loadgen/target/loadgen.jar io.crunch.loadgen.ComparisonSuite [options]
+              --servers <list>          Servers to compare, comma separated (default quarkus,wildfly)
+              --endpoints <list>        Activity endpoints, comma separated (default suspended,reactive)
+              --workloads <list>        Workloads, comma separated from burst,ramp,disconnect-storm (default all)
+              --variant <label:k=v,...> Configuration variant, repeatable, every variant restarts the servers with its
+                                        properties on top of the others, e.g. hedge-on:activity.hedge.enabled=true
+              --rate <n>                Base requests per second the workloads are scaled by (default 20)
+              --duration <time>         Measured duration of the ramp workloads (default 2m)
+              --pause <time>            Idle time between the workloads (default 15s)
+              --project <dir>           Root of the repository with the built modules (default .)
+              --wildfly-home <dir>      WildFly installation (default wildfly/target/server of the project)
+              --jvm-args <options>      JVM options of both servers (default -Xms512m -Xmx512m)
+              --property <key=value>    Configuration of both servers, repeatable, added to the defaults
+                                        activity.rate-limit.enabled=false and activity.cache.enabled=false
+              --startup-timeout <time>  Maximum startup time of a server (default 2m)
+              --report <file>           Markdown report (default comparison-report.md)
+            """;
+
+    public ComparisonOptions {
+        if (servers.isEmpty() || endpoints.isEmpty() || workloads.isEmpty() || variants.isEmpty() || !(rate > 0) || duration.isZero()
+                || duration.isNegative() || pause.isNegative() || startupTimeout.isZero()) {
+            throw new IllegalArgumentException("Invalid comparison: " + servers + " " + endpoints + " " + workloads);
+        }
+        servers = List.copyOf(servers);
+        endpoints = List.copyOf(endpoints);
+        workloads = List.copyOf(workloads);
+        variants = List.copyOf(variants);
+        jvmArgs = List.copyOf(jvmArgs);
+        properties = Map.copyOf(properties);
+    }
+
+    /**
+     * Parses the options, {@link #USAGE} lists them with their defaults.
+     *
+     * @throws IllegalArgumentException If an option is unknown, has no value or an invalid one.
+     */
+    public static ComparisonOptions parse(String... args) {
+        List<Server> servers = List.of(Server.values());
+        var endpoints = List.of("suspended", "reactive");
+        List<Workload> workloads = List.of(Workload.values());
+        var variants = new ArrayList<Variant>();
+        var rate = 20.0;
+        var duration = Duration.ofMinutes(2);
+        var pause = Duration.ofSeconds(15);
+        var project = Path.of(".");
+        Path wildflyHome = null;
+        var jvmArgs = List.of("-Xms512m", "-Xmx512m");
+        // Pinned in case a build enables them: the rate limiter would answer the single load generator client with
+        // 429, and the cache would skip the task
+        var properties = new LinkedHashMap<String, String>();
+        properties.put("activity.rate-limit.enabled", "false");
+        properties.put("activity.cache.enabled", "false");
+        var startupTimeout = Duration.ofMinutes(2);
+        var report = Path.of("comparison-report.md");
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--servers" -> servers = list(value).stream().map(Server::of).toList();
+                case "--endpoints" -> endpoints = list(value);
+                case "--workloads" -> workloads = list(value).stream().map(Workload::of).toList();
+                case "--variant" -> variants.add(Variant.parse(value));
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--duration" -> duration = LoadOptions.duration(value);
+                case "--pause" -> pause = LoadOptions.duration(value);
+                case "--project" -> project = Path.of(value);
+                case "--wildfly-home" -> wildflyHome = Path.of(value);
+                case "--jvm-args" -> jvmArgs = List.of(value.strip().split("\\s+"));
+                case "--property" -> {
+                    var separator = value.indexOf('=');
+                    if (separator < 1) {
+                        throw new IllegalArgumentException("Invalid property: " + value);
+                    }
+                    properties.put(value.substring(0, separator).strip(), value.substring(separator + 1).strip());
+                }
+                case "--startup-timeout" -> startupTimeout = LoadOptions.duration(value);
+                case "--report" -> report = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (wildflyHome == null) {
+            wildflyHome = project.resolve("wildfly/target/server");
+        }
+        if (variants.isEmpty()) {
+            variants.add(Variant.DEFAULT);
+        }
+        return new ComparisonOptions(servers, endpoints, workloads, variants, rate, duration, pause, project, wildflyHome, jvmArgs,
+                properties, startupTimeout, report);
+    }
+
+    /**
+     * The configuration of the servers as {@code -Dkey=value} options.
+     */
+    List<String> systemProperties() {
+        return systemProperties(properties);
+    }
+
+    /**
+     * The configuration of the servers in the variant as {@code -Dkey=value} options.
+     */
+    List<String> systemProperties(Variant variant) {
+        var merged = new LinkedHashMap<>(properties);
+        merged.putAll(variant.properties());
+        return systemProperties(merged);
+    }
+
+    static List<String> systemProperties(Map<String, String> properties) {
+        var options = new ArrayList<String>();
+        new TreeMap<>(properties).forEach((key, value) -> options.add("-D" + key + "=" + value));
+        return options;
+    }
+
+    /**
+     * A configuration the servers are compared in, on top of the configuration of the comparison.
+     *
+     * @param label The name of the variant in the report and the log files.
+     * @param properties The configuration of the variant, it overrides the configuration of the comparison.
+     */
+    public record Variant(String label, Map<String, String> properties) {
+
+        /**
+         * The configuration of the comparison alone.
+         */
+        static final Variant DEFAULT = new Variant("default", Map.of());
+
+        public Variant {
+            if (label.isBlank()) {
+                throw new IllegalArgumentException("Missing label of the variant");
+            }
+            properties = Map.copyOf(properties);
+        }
+
+        /**
+         * Parses a variant of the form {@code label:key=value,key=value}.
+         *
+         * @throws IllegalArgumentException If the label or a property is missing or invalid.
+         */
+        static Variant parse(String value) {
+            var separator = value.indexOf(':');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Invalid variant: " + value);
+            }
+            var properties = new LinkedHashMap<String, String>();
+            for (var property : list(value.substring(separator + 1))) {
+                var equals = property.indexOf('=');
+                if (equals < 1) {
+                    throw new IllegalArgumentException("Invalid property of the variant: " + property);
+                }
+                properties.put(property.substring(0, equals).strip(), property.substring(equals + 1).strip());
+            }
+            if (properties.isEmpty()) {
+                throw new IllegalArgumentException("Missing properties of the variant: " + value);
+            }
+            return new Variant(value.substring(0, separator).strip(), properties);
+        }
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.stream(value.split(",")).map(String::strip).filter(item -> !item.isEmpty()).toList();
+    }
+}
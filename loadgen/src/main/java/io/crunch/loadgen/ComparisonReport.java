@@ -0,0 +1,136 @@
+package io.crunch.loadgen;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of a comparison run as one Markdown report, with the runs of the servers and their variants next to each
+ * other per endpoint and workload.
+ */
+public final class ComparisonReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final ComparisonOptions options;
+
+    private final List<Startup> startups = new ArrayList<>();
+
+    private final List<Run> runs = new ArrayList<>();
+
+    private final Map<String, String> failures = new LinkedHashMap<>();
+
+    /**
+     * The time until a server answered in a variant and its process right after.
+     */
+    record Startup(Server server, ComparisonOptions.Variant variant, Duration time, ProcessSampler.Sample idle) {
+    }
+
+    /**
+     * A workload run against an endpoint of a server in a variant, and the resources the server used during it.
+     */
+    record Run(Server server, ComparisonOptions.Variant variant, String endpoint, Workload workload, LoadResult result,
+               ProcessSampler.Usage usage) {
+    }
+
+    ComparisonReport(ComparisonOptions options) {
+        this.options = options;
+    }
+
+    void add(Startup startup) {
+        startups.add(startup);
+    }
+
+    void add(Run run) {
+        runs.add(run);
+    }
+
+    /**
+     * Records that the comparison of the server in the variant stopped early, its completed runs stay in the report.
+     */
+    void fail(Server server, ComparisonOptions.Variant variant, Exception failure) {
+        failures.put(server.label() + " " + variant.label(), failure.toString());
+    }
+
+    public void print(PrintStream out) {
+        out.println("# Quarkus and WildFly comparison");
+        out.println();
+        out.printf("Run on %s with Java %s and %d cores.%n%n", ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME),
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+        out.printf("- Base rate: %.1f requests/s, ramp duration: %ss%n", options.rate(), options.duration().toSeconds());
+        out.printf("- JVM options: `%s`%n", String.join(" ", options.jvmArgs()));
+        out.printf("- Configuration: `%s`%n", String.join(" ", options.systemProperties()));
+        for (var variant : options.variants()) {
+            if (!variant.properties().isEmpty()) {
+                out.printf("- Variant %s: `%s`%n", variant.label(), String.join(" ", ComparisonOptions.systemProperties(variant.properties())));
+            }
+        }
+        out.println("- Latency is measured from the intended arrival of the requests, corrected for coordinated omission.");
+        out.println();
+
+        out.println("## Startup");
+        out.println();
+        out.println("| Server | Variant | Startup (s) | Threads | RSS (MB) |");
+        out.println("|---|---|---:|---:|---:|");
+        for (var startup : startups) {
+            out.printf("| %s | %s | %.2f | %s | %s |%n", startup.server().label(), startup.variant().label(), startup.time().toMillis() / 1000.0,
+                    count(startup.idle().threads()), megabytes(startup.idle().rssBytes()));
+        }
+        out.println();
+
+        var sorted = runs.stream().sorted(Comparator.comparing((Run run) -> options.endpoints().indexOf(run.endpoint()))
+                .thenComparing(Run::workload).thenComparing(Run::server)
+                .thenComparingInt(run -> options.variants().indexOf(run.variant()))).toList();
+        out.println("## Throughput and latency");
+        out.println();
+        out.print("| Endpoint | Workload | Server | Variant | Intended/s | Achieved/s | Successful/s |");
+        for (var percentile : PERCENTILES) {
+            out.printf(" p%s (ms) |", LoadResult.format(percentile));
+        }
+        out.println(" max (ms) | Errors | 503 timeouts | Rejected | Disconnected |");
+        out.println("|---|---|---|---|" + "---:|".repeat(3 + PERCENTILES.length + 5));
+        for (var run : sorted) {
+            var result = run.result();
+            out.printf("| %s | %s | %s | %s | %.1f | %.1f | %.1f |", run.endpoint(), run.workload().label(), run.server().label(),
+                    run.variant().label(), result.options().intendedRate(), result.achievedRate(), result.throughput());
+            for (var percentile : PERCENTILES) {
+                out.printf(" %.1f |", result.latency().getValueAtPercentile(percentile) / 1000.0);
+            }
+            out.printf(" %.1f | %.2f%% | %.2f%% | %.2f%% | %d |%n", result.latency().getMaxValue() / 1000.0,
+                    result.errorRate() * 100, result.rate(Outcome.TIMEOUT) * 100, result.rate(Outcome.REJECTED) * 100,
+                    result.count(Outcome.DISCONNECTED));
+        }
+        out.println();
+
+        out.println("## Resources");
+        out.println();
+        out.println("| Endpoint | Workload | Server | Variant | Peak threads | Peak RSS (MB) | CPU (s) | CPU cores |");
+        out.println("|---|---|---|---|---:|---:|---:|---:|");
+        for (var run : sorted) {
+            var usage = run.usage();
+            out.printf("| %s | %s | %s | %s | %s | %s | %.1f | %.2f |%n", run.endpoint(), run.workload().label(), run.server().label(),
+                    run.variant().label(), count(usage.peakThreads()), megabytes(usage.peakRssBytes()), usage.cpu().toMillis() / 1000.0, usage.cores());
+        }
+
+        if (!failures.isEmpty()) {
+            out.println();
+            out.println("## Failures");
+            out.println();
+            failures.forEach((server, failure) -> out.printf("- %s: %s%n", server, failure));
+        }
+    }
+
+    private static String count(int value) {
+        return value < 0 ? "n/a" : Integer.toString(value);
+    }
+
+    private static String megabytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+}
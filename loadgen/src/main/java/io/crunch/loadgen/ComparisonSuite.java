@@ -0,0 +1,211 @@
+package io.crunch.loadgen;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Command line entry point of the comparison of the Quarkus and WildFly modules, see {@link ComparisonOptions#USAGE}
+ * for the options.
+ * <p>
+ * Starts each server in turn from its build with the same JVM options and configuration, measures the time until it
+ * answers, and runs the same {@link Workload}s against its activity endpoints with the {@link OpenModelLoad}. While a
+ * workload runs, the threads, the resident memory and the CPU time of the server process are sampled. The server is
+ * stopped before the next one starts, so they do not compete for the cores, and the results of all of them are
+ * written to one Markdown report. The output of a server goes to a log file next to the report. For example:
+ * </p>
+ * <pre>
+ * java -cp loadgen/target/loadgen.jar io.crunch.loadgen.ComparisonSuite --rate 20 --duration 2m
+ * </pre>
+ * <p>
+ * With {@code --variant} every server is started once per configuration variant, so a feature can be compared on and
+ * off under the same load:
+ * </p>
+ * <pre>
+ * java -cp loadgen/target/loadgen.jar io.crunch.loadgen.ComparisonSuite --endpoints reactive \
+ *     --variant hedge-off:activity.hedge.enabled=false --variant hedge-on:activity.hedge.enabled=true
+ * </pre>
+ */
+public final class ComparisonSuite {
+
+    private static final Duration SAMPLE_INTERVAL = Duration.ofMillis(500);
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ComparisonOptions options;
+
+    private final PrintStream out;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    public ComparisonSuite(ComparisonOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        ComparisonOptions options;
+        try {
+            options = ComparisonOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(ComparisonOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        var report = new ComparisonSuite(options, System.out).run();
+        try (var file = new PrintStream(Files.newOutputStream(options.report()))) {
+            report.print(file);
+        }
+        System.out.println();
+        report.print(System.out);
+        System.out.println("\nReport written to " + options.report());
+    }
+
+    /**
+     * Compares the servers in every variant, a server that fails to start or stops answering is recorded and the next
+     * one compared.
+     */
+    public ComparisonReport run() throws InterruptedException {
+        var report = new ComparisonReport(options);
+        for (var variant : options.variants()) {
+            for (var server : options.servers()) {
+                try {
+                    compare(server, variant, report);
+                } catch (IOException | IllegalStateException e) {
+                    out.println("Comparison of " + label(server, variant) + " failed: " + e);
+                    report.fail(server, variant, e);
+                }
+            }
+        }
+        return report;
+    }
+
+    private void compare(Server server, ComparisonOptions.Variant variant, ComparisonReport report) throws IOException, InterruptedException {
+        if (answers(server)) {
+            throw new IllegalStateException("A server already answers at " + server.readiness() + ", stop it first");
+        }
+        var log = logFile(server, variant);
+        var launcher = server.launcher(options, variant)
+                .directory(options.project().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        out.println("Starting " + label(server, variant) + ", its output goes to " + log);
+        var start = System.nanoTime();
+        var process = launcher.start();
+        try {
+            awaitReady(server, process, start);
+            var startup = Duration.ofNanos(System.nanoTime() - start);
+            out.printf("Started %s in %.2fs%n", label(server, variant), startup.toMillis() / 1000.0);
+            report.add(new ComparisonReport.Startup(server, variant, startup, ProcessSampler.sample(process.toHandle())));
+            for (var endpoint : options.endpoints()) {
+                for (var workload : options.workloads()) {
+                    out.printf("%n%s %s %s%n", label(server, variant), endpoint, workload.label());
+                    var load = new OpenModelLoad(workload.options(server.endpoint(endpoint), options.rate(), options.duration()), out);
+                    LoadResult result;
+                    ProcessSampler.Usage usage;
+                    try (var sampler = new ProcessSampler(process.toHandle(), SAMPLE_INTERVAL)) {
+                        result = load.run();
+                        usage = sampler.usage();
+                    }
+                    result.print(out);
+                    report.add(new ComparisonReport.Run(server, variant, endpoint, workload, result, usage));
+                    if (!process.isAlive()) {
+                        throw new IllegalStateException(server.label() + " exited with " + process.exitValue() + ", see " + log);
+                    }
+                    Thread.sleep(options.pause().toMillis());
+                }
+            }
+        } finally {
+            stop(process);
+            server.cleanUp(options);
+        }
+    }
+
+    private Path logFile(Server server, ComparisonOptions.Variant variant) {
+        return options.report().toAbsolutePath().resolveSibling(label(server, variant) + ".log");
+    }
+
+    /**
+     * The server, followed by the variant once there are several.
+     */
+    private String label(Server server, ComparisonOptions.Variant variant) {
+        return options.variants().size() > 1 ? server.label() + "-" + variant.label() : server.label();
+    }
+
+    /**
+     * Polls the readiness endpoint until it answers with 200.
+     *
+     * @throws IllegalStateException If the server exits or does not answer within the startup timeout.
+     */
+    private void awaitReady(Server server, Process process, long start) throws InterruptedException {
+        var deadline = start + options.startupTimeout().toNanos();
+        while (!ready(server)) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(server.label() + " exited with " + process.exitValue() + " during startup");
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new IllegalStateException(server.label() + " did not answer within " + options.startupTimeout());
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+    }
+
+    private boolean ready(Server server) throws InterruptedException {
+        try {
+            return get(server).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean answers(Server server) throws InterruptedException {
+        try {
+            get(server);
+            return true;
+        } catch (ConnectException e) {
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private HttpResponse<Void> get(Server server) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(server.readiness()).timeout(Duration.ofSeconds(1)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Stops the server and the processes it forked, a launch script does not always pass the signal to the JVM.
+     */
+    private void stop(Process process) throws InterruptedException {
+        var handle = process.toHandle();
+        var descendants = handle.descendants().toList();
+        descendants.forEach(ProcessHandle::destroy);
+        handle.destroy();
+        var deadline = System.nanoTime() + STOP_TIMEOUT.toNanos();
+        for (var child : descendants) {
+            waitFor(child, deadline);
+        }
+        waitFor(handle, deadline);
+    }
+
+    private static void waitFor(ProcessHandle process, long deadline) throws InterruptedException {
+        try {
+            process.onExit().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.crunch.loadgen;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+/**
+ * Command line entry point of the open-model load generator, see {@link LoadOptions#USAGE} for the options.
+ * <p>
+ * Drives a constant arrival rate at the activity endpoints of a locally started Quarkus or WildFly build and prints
+ * the latency percentiles corrected for coordinated omission, the outcomes of the requests, and the achieved against
+ * the intended rate. For example:
+ * </p>
+ * <pre>
+ * java -jar loadgen/target/loadgen.jar --target wildfly --endpoint reactive --rate 200 --duration 2m
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        var result = new OpenModelLoad(options, System.out).run();
+        result.print(System.out);
+        if (options.histogram() != null) {
+            try (var out = new PrintStream(Files.newOutputStream(options.histogram()))) {
+                result.latency().outputPercentileDistribution(out, 1000.0);
+            }
+            System.out.println("\nPercentile distribution in ms written to " + options.histogram());
+        }
+    }
+}
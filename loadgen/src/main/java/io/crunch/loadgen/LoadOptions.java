@@ -0,0 +1,226 @@
+package io.crunch.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Settings of an open-model load run, parsed from the command line of the {@link LoadGenerator}.
+ *
+ * @param target The URL of the endpoint under load.
+ * @param rate The intended arrival rate in requests per second, independent of how fast the server answers.
+ * @param rampTo The arrival rate at the end of the measured part, the rate rises linearly to it from {@code rate}.
+ * @param duration The measured part of the run.
+ * @param warmup The part of the run before the measurement, whose requests are sent but not recorded.
+ * @param timeout The client side timeout of a request, longer than the timeout of the endpoint by default.
+ * @param maxInFlight The outstanding requests, an arrival over the limit waits and the wait counts as latency.
+ * @param tenantWeights The shares of the requests sent by each tenant with the {@code X-Tenant} header, empty for none.
+ * @param headers Additional request headers, for example {@code X-Priority: batch}.
+ * @param reportInterval The interval of the progress lines.
+ * @param histogram The file the percentile distribution of the latency is written to, or {@code null}.
+ * @param disconnects The requests the client abandons before they are answered.
+ */
+public record LoadOptions(URI target, double rate, double rampTo, Duration duration, Duration warmup, Duration timeout,
+                          int maxInFlight, List<Integer> tenantWeights, Map<String, String> headers, Duration reportInterval,
+                          Path histogram, Disconnects disconnects) {
+
+    static final String USAGE = """
+            Usage: java -jar loadgen/target/loadgen.jar [options]
+              --target quarkus|wildfly  Server under load on localhost:8080 (default quarkus)
+              --endpoint <name>         Activity endpoint, suspended or reactive (default suspended)
+              --url <url>               Full URL of the endpoint, instead of --target and --endpoint
+              --rate <n>                Intended requests per second (default 100)
+              --ramp-to <n>             Rise linearly to n requests per second over the duration (default --rate)
+              --duration <time>         Measured duration, for example 60s or 2m (default 60s)
+              --warmup <time>           Unrecorded warmup before the measurement (default 10s)
+              --timeout <time>          Client side request timeout (default 30s)
+              --max-in-flight <n>       Maximum outstanding requests (default 10000)
+              --tenants <n>             Spread the requests evenly over n tenants with X-Tenant (default 0)
+              --tenant-weights <list>   Spread the requests over tenants in shares, comma separated, for example 8,1,1
+              --header <name:value>     Additional request header, repeatable
+              --report-interval <time>  Interval of the progress lines (default 5s)
+              --hgrm <file>             Write the latency percentile distribution to the file
+              --disconnect-percent <n>  Abandon n percent of the requests before they are answered (default 0)
+              --disconnect-after <time> Abandon the requests after the time (default 1s)
+              --storm-interval <time>   Abandon requests only in storms starting every interval (default always)
+              --storm-length <time>     Length of a disconnect storm (default 5s)
+            """;
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)(ms|s|m)");
+
+    public LoadOptions {
+        if (!(rate > 0) || !(rampTo > 0) || duration.isZero() || duration.isNegative() || warmup.isNegative() || timeout.isZero()
+                || maxInFlight < 1 || tenantWeights.stream().anyMatch(weight -> weight < 1) || reportInterval.isZero()) {
+            throw new IllegalArgumentException("Invalid load: " + rate + "/s for " + duration + ", " + maxInFlight + " in flight");
+        }
+        tenantWeights = List.copyOf(tenantWeights);
+        headers = Map.copyOf(headers);
+    }
+
+    /**
+     * Parses the options, {@link #USAGE} lists them with their defaults.
+     *
+     * @throws IllegalArgumentException If an option is unknown, has no value or an invalid one.
+     */
+    public static LoadOptions parse(String... args) {
+        var target = "quarkus";
+        var endpoint = "suspended";
+        String url = null;
+        var rate = 100.0;
+        Double rampTo = null;
+        var duration = Duration.ofSeconds(60);
+        var warmup = Duration.ofSeconds(10);
+        var timeout = Duration.ofSeconds(30);
+        var maxInFlight = 10_000;
+        List<Integer> tenantWeights = List.of();
+        var headers = new LinkedHashMap<String, String>();
+        var reportInterval = Duration.ofSeconds(5);
+        Path histogram = null;
+        var disconnectPercent = 0;
+        var disconnectAfter = Duration.ofSeconds(1);
+        var stormInterval = Duration.ZERO;
+        var stormLength = Duration.ofSeconds(5);
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--target" -> target = value;
+                case "--endpoint" -> endpoint = value;
+                case "--url" -> url = value;
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--ramp-to" -> rampTo = Double.parseDouble(value);
+                case "--duration" -> duration = duration(value);
+                case "--warmup" -> warmup = duration(value);
+                case "--timeout" -> timeout = duration(value);
+                case "--max-in-flight" -> maxInFlight = Integer.parseInt(value);
+                case "--tenants" -> tenantWeights = Collections.nCopies(Integer.parseInt(value), 1);
+                case "--tenant-weights" -> tenantWeights = Arrays.stream(value.split(","))
+                        .map(String::strip).map(Integer::parseInt).toList();
+                case "--header" -> {
+                    var separator = value.indexOf(':');
+                    if (separator < 1) {
+                        throw new IllegalArgumentException("Invalid header: " + value);
+                    }
+                    headers.put(value.substring(0, separator).strip(), value.substring(separator + 1).strip());
+                }
+                case "--report-interval" -> reportInterval = duration(value);
+                case "--hgrm" -> histogram = Path.of(value);
+                case "--disconnect-percent" -> disconnectPercent = Integer.parseInt(value);
+                case "--disconnect-after" -> disconnectAfter = duration(value);
+                case "--storm-interval" -> stormInterval = duration(value);
+                case "--storm-length" -> stormLength = duration(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        var uri = URI.create(url != null ? url : baseUrl(target) + endpoint);
+        return new LoadOptions(uri, rate, rampTo != null ? rampTo : rate, duration, warmup, timeout, maxInFlight,
+                tenantWeights, headers, reportInterval, histogram, new Disconnects(disconnectPercent, disconnectAfter, stormInterval, stormLength));
+    }
+
+    /**
+     * The mean intended arrival rate of the measured part.
+     */
+    public double intendedRate() {
+        return (rate + rampTo) / 2;
+    }
+
+    /**
+     * Whether the rate changes over the measured part.
+     */
+    public boolean isRamp() {
+        return rampTo != rate;
+    }
+
+    /**
+     * The index of the tenant of the request with the sequence number, or {@code -1} without tenants. The tenants take
+     * turns in blocks of their weight, so a tenant sends its weight divided by the sum of the weights of the requests.
+     */
+    int tenant(long sequence) {
+        if (tenantWeights.isEmpty()) {
+            return -1;
+        }
+        var slot = sequence % tenantWeights.stream().mapToInt(Integer::intValue).sum();
+        for (int i = 0; ; i++) {
+            slot -= tenantWeights.get(i);
+            if (slot < 0) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * The name of the tenant with the index, sent in the {@code X-Tenant} header.
+     */
+    static String tenantName(int tenant) {
+        return "tenant-" + tenant;
+    }
+
+    /**
+     * Requests the client abandons, closing the connection before the endpoint answers, like the users who give up
+     * on a slow page.
+     *
+     * @param percent The share of the arrivals that are abandoned, between 0 and 100.
+     * @param after How long after its send a request is abandoned.
+     * @param stormInterval The interval the disconnect storms start at, zero to abandon requests during the whole run.
+     * @param stormLength The length of a storm, the requests arriving outside the storms are not abandoned.
+     */
+    public record Disconnects(int percent, Duration after, Duration stormInterval, Duration stormLength) {
+
+        public static final Disconnects NONE = new Disconnects(0, Duration.ofSeconds(1), Duration.ZERO, Duration.ofSeconds(5));
+
+        public Disconnects {
+            if (percent < 0 || percent > 100 || after.isNegative() || stormInterval.isNegative() || stormLength.isNegative()) {
+                throw new IllegalArgumentException("Invalid disconnects: " + percent + "% after " + after);
+            }
+        }
+
+        /**
+         * Whether the request with the sequence number, arriving at the offset from the start of the run, is abandoned.
+         * Every storm abandons the same share of its arrivals, spread evenly over it.
+         */
+        boolean abandons(long sequence, long offsetNanos) {
+            if (percent == 0) {
+                return false;
+            }
+            if (!stormInterval.isZero() && offsetNanos % stormInterval.toNanos() >= stormLength.toNanos()) {
+                return false;
+            }
+            return sequence * percent / 100 != (sequence + 1) * percent / 100;
+        }
+    }
+
+    /**
+     * The activity resource of a locally started server, Quarkus at the root and WildFly under its context root.
+     */
+    static String baseUrl(String target) {
+        return switch (target) {
+            case "quarkus" -> "http://localhost:8080/activity/";
+            case "wildfly" -> "http://localhost:8080/wildfly-rest/activity/";
+            default -> throw new IllegalArgumentException("Unknown target: " + target);
+        };
+    }
+
+    /**
+     * Parses a duration in milliseconds, seconds or minutes, for example {@code 500ms}, {@code 30s} or {@code 2m}.
+     */
+    static Duration duration(String value) {
+        var matcher = DURATION.matcher(value.strip());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid duration: " + value);
+        }
+        var amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "ms" -> Duration.ofMillis(amount);
+            case "s" -> Duration.ofSeconds(amount);
+            default -> Duration.ofMinutes(amount);
+        };
+    }
+}
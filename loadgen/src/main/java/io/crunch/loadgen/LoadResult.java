@@ -0,0 +1,165 @@
+package io.crunch.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The measured part of a load run: the outcomes of the requests, and their latency from the intended arrival and their
+ * service time from the actual send, both in microseconds.
+ */
+public final class LoadResult {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadOptions options;
+
+    private final Histogram latency;
+
+    private final Histogram serviceTime;
+
+    private final long[] outcomes;
+
+    private final long sent;
+
+    private final long windowNanos;
+
+    private final List<Tenant> tenants;
+
+    /**
+     * The requests of a tenant that were not abandoned by the client.
+     *
+     * @param name The value of the tenant header.
+     * @param weight The share of the arrivals the tenant sent, relative to the other tenants.
+     * @param completed The completed requests of the tenant.
+     * @param succeeded The successful requests of the tenant.
+     * @param latency The latency of the completed requests of the tenant from their intended arrival.
+     */
+    public record Tenant(String name, int weight, long completed, long succeeded, Histogram latency) {
+    }
+
+    LoadResult(LoadOptions options, Histogram latency, Histogram serviceTime, long[] outcomes, long sent, long windowNanos,
+               List<Tenant> tenants) {
+        this.options = options;
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.outcomes = outcomes;
+        this.sent = sent;
+        this.windowNanos = windowNanos;
+        this.tenants = List.copyOf(tenants);
+    }
+
+    /**
+     * The latency of the requests from their intended arrival, corrected for coordinated omission.
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+    /**
+     * The service time of the requests from their actual send, without the time they waited to be sent.
+     */
+    public Histogram serviceTime() {
+        return serviceTime;
+    }
+
+    public long sent() {
+        return sent;
+    }
+
+    public long completed() {
+        return Arrays.stream(outcomes).sum();
+    }
+
+    public long count(Outcome outcome) {
+        return outcomes[outcome.ordinal()];
+    }
+
+    public LoadOptions options() {
+        return options;
+    }
+
+    /**
+     * The results per tenant, empty if the requests were not spread over tenants.
+     */
+    public List<Tenant> tenants() {
+        return tenants;
+    }
+
+    /**
+     * The rate the requests were actually sent at, lower than the intended rate if the generator fell behind.
+     */
+    public double achievedRate() {
+        return sent / (windowNanos / 1e9);
+    }
+
+    /**
+     * The successful responses per second over the measured part of the run.
+     */
+    public double throughput() {
+        return count(Outcome.SUCCESS) / (windowNanos / 1e9);
+    }
+
+    /**
+     * The share of the completed requests with the outcome, between 0 and 1.
+     */
+    public double rate(Outcome outcome) {
+        return share(count(outcome));
+    }
+
+    /**
+     * The share of the completed requests that failed, see {@link Outcome#isError()}.
+     */
+    public double errorRate() {
+        return share(Arrays.stream(Outcome.values()).filter(Outcome::isError).mapToLong(this::count).sum());
+    }
+
+    private double share(long count) {
+        var completed = completed();
+        return completed == 0 ? 0 : (double) count / completed;
+    }
+
+    public void print(PrintStream out) {
+        out.println();
+        out.printf("Target      %s%n", options.target());
+        out.printf("Rate        %.1f/s intended, %.1f/s achieved, %.1f/s successful%n", options.intendedRate(), achievedRate(), throughput());
+        if (options.isRamp()) {
+            out.printf("Ramp        %.1f/s to %.1f/s%n", options.rate(), options.rampTo());
+        }
+        out.printf("Requests    %d sent, %d completed%n", sent, completed());
+        out.printf("Errors      %.2f%% errors, %.2f%% 503 timeouts%n", errorRate() * 100, rate(Outcome.TIMEOUT) * 100);
+        for (var outcome : Outcome.values()) {
+            out.printf("  %-18s %10d %8.2f%%%n", outcome.label(), count(outcome), rate(outcome) * 100);
+        }
+        out.printf("%nLatency in ms %14s %14s%n", "corrected", "service time");
+        for (var percentile : PERCENTILES) {
+            out.printf("  p%-11s %14.3f %14.3f%n", format(percentile),
+                    latency.getValueAtPercentile(percentile) / 1000.0, serviceTime.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf("  %-12s %14.3f %14.3f%n", "max", latency.getMaxValue() / 1000.0, serviceTime.getMaxValue() / 1000.0);
+        if (!tenants.isEmpty()) {
+            printTenants(out);
+        }
+    }
+
+    /**
+     * Prints the share of the arrivals and of the successful responses of each tenant. Under fair scheduling a tenant
+     * that sends more than its share of a saturated server loses the excess, while the others keep their throughput.
+     */
+    private void printTenants(PrintStream out) {
+        var weights = tenants.stream().mapToInt(Tenant::weight).sum();
+        var succeeded = tenants.stream().mapToLong(Tenant::succeeded).sum();
+        out.printf("%n%-14s %14s %14s %14s %14s %14s%n", "Tenants", "arrivals", "successful", "successful/s", "p50 (ms)", "p99 (ms)");
+        for (var tenant : tenants) {
+            out.printf("  %-12s %13.1f%% %13.1f%% %14.1f %14.3f %14.3f%n", tenant.name(), 100.0 * tenant.weight() / weights,
+                    succeeded == 0 ? 0 : 100.0 * tenant.succeeded() / succeeded, tenant.succeeded() / (windowNanos / 1e9),
+                    tenant.latency().getValueAtPercentile(50) / 1000.0, tenant.latency().getValueAtPercentile(99) / 1000.0);
+        }
+    }
+
+    static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
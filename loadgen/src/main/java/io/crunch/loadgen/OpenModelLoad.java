@@ -0,0 +1,266 @@
+package io.crunch.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Open-model load run against an endpoint: the requests arrive at a constant rate whether or not the earlier ones have
+ * been answered, like the independent clients of a service.
+ * <p>
+ * The arrival of request {@code i} is scheduled at {@code start + i / rate}, or on the linear rise of the rate during
+ * the measured part of a ramp. The requests are sent with the
+ * non-blocking {@link HttpClient} of the JDK, so a slow server does not hold back the next arrivals. The latency of a
+ * request is measured from its intended arrival, not from the moment it was sent: if the generator falls behind, or
+ * an arrival waits for one of the {@code maxInFlight} slots, the delay counts as latency, the way a client of the
+ * service would see it. This corrects the coordinated omission of closed-model load tools, where a stalled server also
+ * stalls the client and the queueing delay never shows in the percentiles. The service time, from the actual send,
+ * is recorded next to it, the gap between the two is the time the requests queued.
+ * </p>
+ * <p>
+ * The requests chosen by the {@link LoadOptions.Disconnects} are cancelled after their delay, which makes the client
+ * close the connection. They are counted as {@link Outcome#DISCONNECTED} without a latency.
+ * </p>
+ * <p>
+ * Every completed request is recorded with its {@link Outcome}, the rejected and failed ones as well, and with its
+ * tenant if the requests are spread over tenants, so the share each tenant gets of a saturated server can be compared
+ * with its share of the arrivals. The requests that arrive during the warmup are sent but not recorded. The histograms are filled through {@link Recorder}s, which
+ * the completion threads write without locks, and are collected into the totals every report interval.
+ * </p>
+ */
+public final class OpenModelLoad {
+
+    static final String TENANT_HEADER = "X-Tenant";
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final long DRAIN_GRACE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final LoadOptions options;
+
+    private final PrintStream out;
+
+    private final HttpClient client;
+
+    private final Semaphore inFlight;
+
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+    private final Histogram totalLatency = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    private final Histogram totalServiceTime = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    private final Recorder[] tenantLatency;
+
+    private final LongAdder[] tenantCompleted;
+
+    private final LongAdder[] tenantSucceeded;
+
+    private final Histogram[] totalTenantLatency;
+
+    private final Histogram[] intervalTenantLatency;
+
+    private Histogram intervalLatency;
+
+    private Histogram intervalServiceTime;
+
+    private long measureFrom;
+
+    private long lastReport;
+
+    public OpenModelLoad(LoadOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .build();
+        this.inFlight = new Semaphore(options.maxInFlight());
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+        var tenants = options.tenantWeights().size();
+        this.tenantLatency = new Recorder[tenants];
+        this.tenantCompleted = new LongAdder[tenants];
+        this.tenantSucceeded = new LongAdder[tenants];
+        this.totalTenantLatency = new Histogram[tenants];
+        this.intervalTenantLatency = new Histogram[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantLatency[i] = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+            tenantCompleted[i] = new LongAdder();
+            tenantSucceeded[i] = new LongAdder();
+            totalTenantLatency[i] = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    /**
+     * Sends the warmup and the measured requests at the intended rate, then waits for the outstanding ones up to the
+     * request timeout.
+     *
+     * @return The recorded outcomes and latencies of the measured requests.
+     */
+    public LoadResult run() throws InterruptedException {
+        var start = System.nanoTime();
+        measureFrom = start + options.warmup().toNanos();
+        lastReport = measureFrom;
+        var end = measureFrom + options.duration().toNanos();
+        var interval = options.reportInterval().toNanos();
+        if (options.isRamp()) {
+            out.printf("Sending %.1f to %.1f requests/s to %s for %ss after %ss warmup%n", options.rate(), options.rampTo(),
+                    options.target(), options.duration().toSeconds(), options.warmup().toSeconds());
+        } else {
+            out.printf("Sending %.1f requests/s to %s for %ss after %ss warmup%n", options.rate(), options.target(),
+                    options.duration().toSeconds(), options.warmup().toSeconds());
+        }
+        var scheduler = scheduler();
+        scheduler.scheduleAtFixedRate(() -> report(true), measureFrom - start + interval, interval, NANOSECONDS);
+        long sent = 0;
+        long sendEnd;
+        try {
+            for (long i = 0; ; i++) {
+                var intended = start + arrival(i);
+                if (intended - end >= 0) {
+                    break;
+                }
+                for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+                var measured = intended - measureFrom >= 0;
+                send(i, intended, measured, options.disconnects().abandons(i, intended - start) ? scheduler : null);
+                if (measured) {
+                    sent++;
+                }
+            }
+            sendEnd = System.nanoTime();
+            if (!inFlight.tryAcquire(options.maxInFlight(), options.timeout().toNanos() + DRAIN_GRACE_NANOS, NANOSECONDS)) {
+                out.println("Gave up waiting for " + (options.maxInFlight() - inFlight.availablePermits()) + " requests");
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        report(false);
+        var counts = new long[outcomes.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = outcomes[i].sum();
+        }
+        var tenants = new ArrayList<LoadResult.Tenant>();
+        for (int i = 0; i < tenantLatency.length; i++) {
+            tenants.add(new LoadResult.Tenant(LoadOptions.tenantName(i), options.tenantWeights().get(i),
+                    tenantCompleted[i].sum(), tenantSucceeded[i].sum(), totalTenantLatency[i]));
+        }
+        return new LoadResult(options, totalLatency, totalServiceTime, counts, sent, sendEnd - measureFrom, tenants);
+    }
+
+    /**
+     * The intended arrival of the request with the sequence number, in nanoseconds from the start of the run. The
+     * warmup runs at the initial rate, then the rate rises by {@code a = (rampTo - rate) / duration} per second, so
+     * the {@code n}th measured request arrives at the {@code t} where {@code rate * t + a * t * t / 2 = n}.
+     */
+    long arrival(long sequence) {
+        var warmupSeconds = options.warmup().toNanos() / 1e9;
+        var warmupRequests = (long) Math.ceil(warmupSeconds * options.rate());
+        if (sequence < warmupRequests) {
+            return (long) (sequence * 1e9 / options.rate());
+        }
+        var n = sequence - warmupRequests;
+        var a = (options.rampTo() - options.rate()) / (options.duration().toNanos() / 1e9);
+        var t = 2 * n / (options.rate() + Math.sqrt(options.rate() * options.rate() + 2 * a * n));
+        return options.warmup().toNanos() + (long) (t * 1e9);
+    }
+
+    private void send(long sequence, long intended, boolean measured, ScheduledExecutorService abandon) {
+        var request = HttpRequest.newBuilder(options.target()).timeout(options.timeout()).GET();
+        options.headers().forEach(request::header);
+        var tenant = options.tenant(sequence);
+        if (tenant >= 0) {
+            request.header(TENANT_HEADER, LoadOptions.tenantName(tenant));
+        }
+        var sentAt = System.nanoTime();
+        var response = client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (abandon != null) {
+            abandon.schedule(() -> response.cancel(true), options.disconnects().after().toNanos(), NANOSECONDS);
+        }
+        response.whenComplete((answer, failure) -> {
+            try {
+                if (measured) {
+                    record(Outcome.of(answer, failure), intended, sentAt, tenant);
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void record(Outcome outcome, long intended, long sentAt, int tenant) {
+        var now = System.nanoTime();
+        outcomes[outcome.ordinal()].increment();
+        if (outcome == Outcome.DISCONNECTED) {
+            return;
+        }
+        latency.recordValue(micros(now - intended));
+        serviceTime.recordValue(micros(now - sentAt));
+        if (tenant >= 0) {
+            tenantCompleted[tenant].increment();
+            if (outcome == Outcome.SUCCESS) {
+                tenantSucceeded[tenant].increment();
+            }
+            tenantLatency[tenant].recordValue(micros(now - intended));
+        }
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    /**
+     * Collects the interval histograms into the totals and optionally prints a progress line of the interval.
+     */
+    private synchronized void report(boolean progress) {
+        var now = System.nanoTime();
+        intervalLatency = latency.getIntervalHistogram(intervalLatency);
+        intervalServiceTime = serviceTime.getIntervalHistogram(intervalServiceTime);
+        totalLatency.add(intervalLatency);
+        totalServiceTime.add(intervalServiceTime);
+        for (int i = 0; i < tenantLatency.length; i++) {
+            intervalTenantLatency[i] = tenantLatency[i].getIntervalHistogram(intervalTenantLatency[i]);
+            totalTenantLatency[i].add(intervalTenantLatency[i]);
+        }
+        var seconds = (now - lastReport) / 1e9;
+        lastReport = now;
+        if (progress && intervalLatency.getTotalCount() > 0) {
+            out.printf("%7.1fs %9d completed %9.1f/s   p50 %9.3f ms   p99 %9.3f ms   max %9.3f ms%n",
+                    (now - measureFrom) / 1e9, intervalLatency.getTotalCount(), intervalLatency.getTotalCount() / seconds,
+                    intervalLatency.getValueAtPercentile(50) / 1000.0, intervalLatency.getValueAtPercentile(99) / 1000.0,
+                    intervalLatency.getMaxValue() / 1000.0);
+        }
+    }
+
+    private static ScheduledExecutorService scheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "loadgen-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package io.crunch.loadgen;
+
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Outcome of a request of the load run, told apart by the responses of the activity endpoints.
+ * <p>
+ * The endpoints answer a request that timed out or cannot finish before its deadline with {@code 503} without a
+ * {@code Retry-After} header, while the bulkhead, the load shedding and the open circuit breaker reject requests with
+ * {@code 503} and {@code Retry-After}, and the rate limiter with {@code 429}. The requests the client abandoned on
+ * purpose are {@link #DISCONNECTED}.
+ * </p>
+ */
+public enum Outcome {
+
+    SUCCESS("success", false),
+    TIMEOUT("503 timeout", false),
+    REJECTED("503 rejected", false),
+    RATE_LIMITED("429 rate limited", false),
+    ERROR("error response", true),
+    CLIENT_TIMEOUT("client timeout", true),
+    CONNECTION_ERROR("connection error", true),
+    DISCONNECTED("disconnected", false);
+
+    private final String label;
+
+    private final boolean error;
+
+    Outcome(String label, boolean error) {
+        this.label = label;
+        this.error = error;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Whether the outcome counts as an error, a failed task, a response the endpoint did not send in time or none.
+     */
+    public boolean isError() {
+        return error;
+    }
+
+    static Outcome of(HttpResponse<?> response, Throwable failure) {
+        if (failure != null) {
+            var cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof CancellationException) {
+                return DISCONNECTED;
+            }
+            return cause instanceof HttpTimeoutException ? CLIENT_TIMEOUT : CONNECTION_ERROR;
+        }
+        return switch (response.statusCode()) {
+            case 429 -> RATE_LIMITED;
+            case 503 -> response.headers().firstValue("Retry-After").isPresent() ? REJECTED : TIMEOUT;
+            default -> response.statusCode() < 400 ? SUCCESS : ERROR;
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package io.crunch.loadgen;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Samples the threads, the resident memory and the CPU time of a server process and its descendants, so a server
+ * started by a launch script is measured with the JVM it forks.
+ * <p>
+ * The threads and the resident set size are read from {@code /proc}, where it is not available they are reported as
+ * {@code -1}. The CPU time is the user and system time the operating system reports for the processes.
+ * </p>
+ */
+final class ProcessSampler implements AutoCloseable {
+
+    private final ProcessHandle root;
+
+    private final ScheduledExecutorService executor;
+
+    private final Sample first;
+
+    private final long startNanos;
+
+    private int peakThreads;
+
+    private long peakRssBytes;
+
+    private Duration lastCpu;
+
+    /**
+     * A sample of the process tree.
+     *
+     * @param threads The threads of the processes, or -1 if unknown.
+     * @param rssBytes The resident set size of the processes, or -1 if unknown.
+     * @param cpu The CPU time the processes used since they started.
+     */
+    record Sample(int threads, long rssBytes, Duration cpu) {
+    }
+
+    /**
+     * The resources the process tree used while it was sampled.
+     *
+     * @param peakThreads The most threads of a sample, or -1 if unknown.
+     * @param peakRssBytes The largest resident set size of a sample, or -1 if unknown.
+     * @param cpu The CPU time used between the first and the last sample.
+     * @param wall The time between the first and the last sample.
+     */
+    record Usage(int peakThreads, long peakRssBytes, Duration cpu, Duration wall) {
+
+        /**
+         * The average number of cores busy with the processes.
+         */
+        double cores() {
+            return wall.isZero() ? 0 : (double) cpu.toNanos() / wall.toNanos();
+        }
+    }
+
+    /**
+     * Starts sampling the process tree at the interval.
+     */
+    ProcessSampler(ProcessHandle root, Duration interval) {
+        this.root = root;
+        this.first = sample(root);
+        this.startNanos = System.nanoTime();
+        this.peakThreads = first.threads();
+        this.peakRssBytes = first.rssBytes();
+        this.lastCpu = first.cpu();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "loadgen-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::update, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Takes a last sample and stops sampling.
+     *
+     * @return The resources used since the sampler started.
+     */
+    Usage usage() {
+        executor.shutdownNow();
+        update();
+        synchronized (this) {
+            return new Usage(peakThreads, peakRssBytes, lastCpu.minus(first.cpu()), Duration.ofNanos(System.nanoTime() - startNanos));
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void update() {
+        var sample = sample(root);
+        synchronized (this) {
+            peakThreads = Math.max(peakThreads, sample.threads());
+            peakRssBytes = Math.max(peakRssBytes, sample.rssBytes());
+            // The CPU time of a process that already exited is gone, it must not make the usage negative
+            if (sample.cpu().compareTo(lastCpu) > 0) {
+                lastCpu = sample.cpu();
+            }
+        }
+    }
+
+    /**
+     * Samples the process and its live descendants.
+     */
+    static Sample sample(ProcessHandle root) {
+        var threads = 0;
+        var rssBytes = 0L;
+        var cpu = Duration.ZERO;
+        for (var process : Stream.concat(Stream.of(root), root.descendants()).filter(ProcessHandle::isAlive).toList()) {
+            cpu = cpu.plus(process.info().totalCpuDuration().orElse(Duration.ZERO));
+            var status = status(process.pid());
+            if (status == null || threads < 0) {
+                threads = -1;
+                rssBytes = -1;
+            } else {
+                threads += status.threads();
+                rssBytes += status.rssBytes();
+            }
+        }
+        return new Sample(threads, rssBytes, cpu);
+    }
+
+    /**
+     * Reads the {@code Threads} and {@code VmRSS} lines of {@code /proc/<pid>/status}.
+     */
+    private static Sample status(long pid) {
+        try {
+            var threads = -1;
+            var rssBytes = 0L;
+            for (var line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("Threads:")) {
+                    threads = Integer.parseInt(line.substring("Threads:".length()).strip());
+                } else if (line.startsWith("VmRSS:")) {
+                    var value = line.substring("VmRSS:".length()).strip();
+                    rssBytes = Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+            return threads < 0 ? null : new Sample(threads, rssBytes, Duration.ZERO);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.crunch.loadgen;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The two implementations of the activity resource, as the {@link ComparisonSuite} starts them from their build.
+ */
+public enum Server {
+
+    /**
+     * The fast-jar of the Quarkus module, built with {@code mvn -f quarkus/pom.xml package}.
+     */
+    QUARKUS("quarkus") {
+        @Override
+        ProcessBuilder launcher(ComparisonOptions options, ComparisonOptions.Variant variant) throws IOException {
+            var jar = options.project().resolve("quarkus/target/quarkus-app/quarkus-run.jar");
+            requireFile(jar, "mvn -f quarkus/pom.xml package");
+            var command = new ArrayList<String>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(options.jvmArgs());
+            command.addAll(options.systemProperties(variant));
+            command.add("-jar");
+            command.add(jar.toString());
+            return new ProcessBuilder(command);
+        }
+    },
+    /**
+     * The WAR of the WildFly module in the deployment scanner directory of a standalone WildFly, by default the one the
+     * WildFly Maven plugin provisioned with {@code mvn -f wildfly/pom.xml package wildfly:run}.
+     */
+    WILDFLY("wildfly") {
+        @Override
+        ProcessBuilder launcher(ComparisonOptions options, ComparisonOptions.Variant variant) throws IOException {
+            var war = options.project().resolve("wildfly/target/wildfly-rest.war");
+            requireFile(war, "mvn -f wildfly/pom.xml package");
+            var script = options.wildflyHome().resolve("bin/standalone.sh");
+            requireFile(script, "mvn -f wildfly/pom.xml package wildfly:run, or pass --wildfly-home");
+            Files.copy(war, deployment(options), StandardCopyOption.REPLACE_EXISTING);
+            var command = new ArrayList<String>();
+            command.add(script.toString());
+            command.addAll(options.systemProperties(variant));
+            var launcher = new ProcessBuilder(command);
+            launcher.environment().put("JAVA_OPTS", String.join(" ", options.jvmArgs()));
+            return launcher;
+        }
+
+        @Override
+        void cleanUp(ComparisonOptions options) throws IOException {
+            var deployment = deployment(options);
+            try (var markers = Files.list(deployment.getParent())) {
+                for (var file : markers.filter(path -> path.getFileName().toString().startsWith(WAR + ".")).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(deployment);
+        }
+
+        private Path deployment(ComparisonOptions options) {
+            return options.wildflyHome().resolve("standalone/deployments").resolve(WAR);
+        }
+    };
+
+    private static final String WAR = "wildfly-rest.war";
+
+    private final String label;
+
+    Server(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    static Server of(String label) {
+        return Arrays.stream(values()).filter(server -> server.label.equals(label)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown server: " + label));
+    }
+
+    /**
+     * The URL of an activity endpoint of the started server.
+     */
+    URI endpoint(String endpoint) {
+        return URI.create(LoadOptions.baseUrl(label) + endpoint);
+    }
+
+    /**
+     * The metrics endpoint, it answers once the activity resource is deployed.
+     */
+    URI readiness() {
+        return endpoint("metrics");
+    }
+
+    /**
+     * Prepares the server and returns the command that starts it with the JVM options and configuration of both, and
+     * the configuration of the variant.
+     *
+     * @throws IllegalStateException If the module is not built.
+     */
+    abstract ProcessBuilder launcher(ComparisonOptions options, ComparisonOptions.Variant variant) throws IOException;
+
+    /**
+     * Removes what {@link #launcher} left behind, after the server stopped.
+     */
+    void cleanUp(ComparisonOptions options) throws IOException {
+    }
+
+    private static void requireFile(Path file, String build) {
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalStateException(file + " does not exist, build it with: " + build);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.crunch.loadgen;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The workload profiles of the {@link ComparisonSuite}, scaled by the base rate so every server gets the same load.
+ */
+public enum Workload {
+
+    /**
+     * Five times the base rate for 15 seconds without a warmup, right after the server started or the last workload.
+     */
+    BURST("burst"),
+    /**
+     * A quarter of the base rate rising to twice the base rate over the duration, after a warmup at the initial rate.
+     */
+    RAMP("ramp"),
+    /**
+     * The ramp, with a storm every 20 seconds in which the clients abandon half of the requests arriving in 5 seconds
+     * after a second, while the endpoints still run the task of the requests.
+     */
+    DISCONNECT_STORM("disconnect-storm");
+
+    private static final Duration BURST_DURATION = Duration.ofSeconds(15);
+
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+
+    private static final int MAX_IN_FLIGHT = 10_000;
+
+    private static final LoadOptions.Disconnects STORMS =
+            new LoadOptions.Disconnects(50, Duration.ofSeconds(1), Duration.ofSeconds(20), Duration.ofSeconds(5));
+
+    private final String label;
+
+    Workload(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    static Workload of(String label) {
+        return Arrays.stream(values()).filter(workload -> workload.label.equals(label)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown workload: " + label));
+    }
+
+    /**
+     * The load run of the workload against the endpoint.
+     *
+     * @param rate The base arrival rate in requests per second.
+     * @param duration The measured part of the ramps, the burst has a fixed length.
+     */
+    LoadOptions options(URI target, double rate, Duration duration) {
+        return switch (this) {
+            case BURST -> new LoadOptions(target, 5 * rate, 5 * rate, BURST_DURATION, Duration.ZERO, TIMEOUT, MAX_IN_FLIGHT,
+                    List.of(), Map.of(), REPORT_INTERVAL, null, LoadOptions.Disconnects.NONE);
+            case RAMP -> new LoadOptions(target, rate / 4, 2 * rate, duration, WARMUP, TIMEOUT, MAX_IN_FLIGHT,
+                    List.of(), Map.of(), REPORT_INTERVAL, null, LoadOptions.Disconnects.NONE);
+            case DISCONNECT_STORM -> new LoadOptions(target, rate / 4, 2 * rate, duration, WARMUP, TIMEOUT, MAX_IN_FLIGHT,
+                    List.of(), Map.of(), REPORT_INTERVAL, null, STORMS);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker of the long-running task, shared by the suspended and reactive endpoints.
+ * <p>
+ * When the task keeps failing, every request still held a worker thread before it failed. With
+ * {@code activity.circuit-breaker.enabled} the runs are started through a {@link CircuitBreaker}, which rejects them
+ * with {@code 503 Service Unavailable} on the calling thread while it is open. Half of the runs fail by design, so the
+ * default failure rate threshold is well above one half. The rates are only evaluated over a full window of 100 runs,
+ * because a fair coin reaches 75% failures in 20 runs about once in 50. The 10 probes of the half-open breaker are
+ * judged by the same rates, so the breaker closes again at the designed failure rate instead of waiting for a cycle in
+ * which every probe succeeds.
+ * </p>
+ * <p>
+ * The state, the failure and slow-call rates, the rejected calls and the number of times the breaker opened are
+ * registered as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityBreaker {
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @ConfigProperty(name = "activity.circuit-breaker.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "activity.circuit-breaker.window-size", defaultValue = "100")
+    int windowSize;
+
+    @ConfigProperty(name = "activity.circuit-breaker.minimum-calls", defaultValue = "100")
+    int minimumCalls;
+
+    @ConfigProperty(name = "activity.circuit-breaker.failure-rate-percent", defaultValue = "75")
+    int failureRatePercent;
+
+    @ConfigProperty(name = "activity.circuit-breaker.slow-call-millis", defaultValue = "7500")
+    long slowCallMillis;
+
+    @ConfigProperty(name = "activity.circuit-breaker.slow-call-rate-percent", defaultValue = "80")
+    int slowCallRatePercent;
+
+    @ConfigProperty(name = "activity.circuit-breaker.open-millis", defaultValue = "5000")
+    long openMillis;
+
+    @ConfigProperty(name = "activity.circuit-breaker.probes", defaultValue = "10")
+    int probes;
+
+    @ConfigProperty(name = "activity.circuit-breaker.retry-after-seconds", defaultValue = "5")
+    long retryAfterSeconds;
+
+    private CircuitBreaker breaker;
+
+    @PostConstruct
+    void init() {
+        breaker = new CircuitBreaker("activity", new CircuitBreaker.Settings(windowSize, minimumCalls, failureRatePercent,
+                slowCallMillis, slowCallRatePercent, openMillis, probes, retryAfterSeconds));
+        metrics.register("circuit-breaker.state", () -> breaker.state().ordinal());
+        metrics.register("circuit-breaker.failure-rate", breaker::failureRate);
+        metrics.register("circuit-breaker.slow-call-rate", breaker::slowCallRate);
+        metrics.register("circuit-breaker.rejected", breaker::rejected);
+        metrics.register("circuit-breaker.opened", breaker::opened);
+    }
+
+    /**
+     * Starts the run through the circuit breaker if it is enabled.
+     *
+     * @param run Starts a run of the task, or attaches to the run in flight.
+     * @return The future of the run, or a future failed with {@code 503 Service Unavailable} if the breaker is open.
+     */
+    public CompletableFuture<String> execute(Supplier<CompletableFuture<String>> run) {
+        return enabled ? breaker.execute(run) : run.get();
+    }
+}
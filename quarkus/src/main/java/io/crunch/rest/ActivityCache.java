@@ -0,0 +1,89 @@
+package io.crunch.rest;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result cache of the long-running task.
+ * <p>
+ * The activities are cached per {@link ExecutionMode} in a Caffeine {@link AsyncLoadingCache}, which bounds its size
+ * with W-TinyLFU eviction and expires an entry {@code activity.cache.ttl-seconds} after it was loaded. A failed run is
+ * not cached, so the next request starts a new one. Concurrent misses of the same mode share the run that loads it.
+ * </p>
+ *
+ * <h2>Cache Hits</h2>
+ * <p>
+ * A hit returns an already completed future, so the callbacks of the caller run on the calling thread and the response
+ * is resumed without an executor hop. Every caller receives its own copy of the cached future: cancelling it on a
+ * timeout or a disconnection never cancels the load shared with the other callers.
+ * </p>
+ *
+ * <h2>Refresh Ahead</h2>
+ * <p>
+ * The first request that reads an entry older than {@code activity.cache.refresh-seconds} is served the cached value
+ * while the task runs again in the background. A failed refresh keeps the cached value until it expires. The refresh
+ * interval must leave enough time for a run before the entry expires, otherwise it is disabled.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityCache {
+
+    @Inject
+    ActivityTask activityTask;
+
+    @Inject
+    ActivityExecutors executors;
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @ConfigProperty(name = "activity.cache.ttl-seconds", defaultValue = "60")
+    long ttlSeconds;
+
+    @ConfigProperty(name = "activity.cache.refresh-seconds", defaultValue = "30")
+    long refreshSeconds;
+
+    @ConfigProperty(name = "activity.cache.maximum-size", defaultValue = "16")
+    long maximumSize;
+
+    private AsyncLoadingCache<ExecutionMode, String> cache;
+
+    @PostConstruct
+    void init() {
+        var builder = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .executor(executors.platform())
+                .recordStats();
+        if (refreshSeconds > 0 && refreshSeconds < ttlSeconds) {
+            builder.refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS);
+        } else {
+            Log.warn("Refresh ahead of the activity cache is disabled, refresh: " + refreshSeconds + "s, ttl: " + ttlSeconds + "s");
+        }
+        cache = builder.buildAsync((mode, executor) -> activityTask.start(mode));
+
+        metrics.register("cache.hits", () -> cache.synchronous().stats().hitCount());
+        metrics.register("cache.misses", () -> cache.synchronous().stats().missCount());
+        metrics.register("cache.evictions", () -> cache.synchronous().stats().evictionCount());
+        metrics.register("cache.load-failures", () -> cache.synchronous().stats().loadFailureCount());
+        metrics.register("cache.size", () -> cache.synchronous().estimatedSize());
+    }
+
+    /**
+     * Returns the cached activities of the given mode, or loads them by running the task.
+     *
+     * @param mode The execution mode of the run that loads the activities.
+     * @return A copy of the cached future, which can be cancelled by the caller.
+     */
+    public CompletableFuture<String> get(ExecutionMode mode) {
+        return cache.get(mode).copy();
+    }
+}
@@ -0,0 +1,38 @@
+package io.crunch.rest;
+
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Provides the executors that run the long-running activity task in the thread based {@link ExecutionMode}s.
+ * <p>
+ * In {@link ExecutionMode#PLATFORM} mode the Mutiny default worker pool is used, which parks a platform thread for the
+ * whole duration of the task. In {@link ExecutionMode#VIRTUAL} mode the task is handed to the virtual-thread executor
+ * that Quarkus also uses for {@code @RunOnVirtualThread} endpoints, so a sleeping task no longer pins a carrier thread.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityExecutors {
+
+    @Inject
+    @VirtualThreads
+    ExecutorService virtualThreads;
+
+    /**
+     * Returns the Mutiny default worker pool.
+     */
+    public ExecutorService platform() {
+        return Infrastructure.getDefaultWorkerPool();
+    }
+
+    /**
+     * Returns the virtual-thread executor.
+     */
+    public ExecutorService virtual() {
+        return virtualThreads;
+    }
+}
@@ -0,0 +1,81 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Hedged execution of the long-running task.
+ * <p>
+ * The runs of the task take 5 to 11 seconds at random, so the tail latency is dominated by the slow draws. With
+ * {@code activity.hedge.enabled} a run that has not finished after the {@code activity.hedge.percentile} of the recent
+ * run latencies is hedged by a second run, see {@link Hedge}. At most {@code activity.hedge.budget-percent} of the
+ * executions are hedged. Until enough runs succeeded the delay is {@code activity.hedge.initial-delay-millis}.
+ * </p>
+ * <p>
+ * The successful runs take 5 to 8 seconds, since the longer ones do not fit before the 8 second timeout, so any
+ * percentile of their latency leaves no time for a hedge. The delay is therefore capped at
+ * {@code activity.hedge.max-delay-millis}. A hedge shares the deadline of its request and only fits the runs that end
+ * before the timeout: after the default 1 second the hedge has 7 seconds left for runs of 5 or 6 seconds, after 2
+ * seconds only the 5 second runs fit, and from 3 seconds, the timeout minus the shortest run, the hedge is skipped.
+ * </p>
+ * <p>
+ * The started, winning, denied and skipped hedges and the current delay are registered as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityHedge {
+
+    @Inject
+    DeadlineScheduler deadlines;
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @ConfigProperty(name = "activity.hedge.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "activity.hedge.percentile", defaultValue = "50")
+    int percentile;
+
+    @ConfigProperty(name = "activity.hedge.budget-percent", defaultValue = "10")
+    int budgetPercent;
+
+    @ConfigProperty(name = "activity.hedge.initial-delay-millis", defaultValue = "1000")
+    long initialDelayMillis;
+
+    @ConfigProperty(name = "activity.hedge.max-delay-millis", defaultValue = "1000")
+    long maxDelayMillis;
+
+    private Hedge hedge;
+
+    @PostConstruct
+    void init() {
+        hedge = new Hedge(deadlines, percentile, budgetPercent, initialDelayMillis, maxDelayMillis,
+                ActivityTask.MIN_DURATION * 1000L);
+        metrics.register("hedge.delay-millis", hedge::delayMillis);
+        metrics.register("hedge.hedged", hedge::hedged);
+        metrics.register("hedge.won", hedge::won);
+        metrics.register("hedge.denied", hedge::denied);
+        metrics.register("hedge.beyond-deadline", hedge::beyondDeadline);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Executes the runs, hedging the first one if it is slow.
+     *
+     * @param run Starts a dedicated run of the task.
+     * @param deadline The deadline of the request, shared by the hedge.
+     * @return The future of the first successful run, cancelling it cancels every run.
+     */
+    public CompletableFuture<String> execute(Supplier<CompletableFuture<String>> run, TaskDeadline deadline) {
+        return hedge.execute(run, deadline);
+    }
+}
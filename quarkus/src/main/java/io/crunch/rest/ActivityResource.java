@@ -1,9 +1,11 @@
 package io.crunch.rest;
 
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
-import io.smallrye.mutiny.unchecked.Unchecked;
+import io.vertx.core.http.HttpServerResponse;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -12,12 +14,17 @@ import jakarta.ws.rs.container.AsyncResponse;
 import jakarta.ws.rs.container.CompletionCallback;
 import jakarta.ws.rs.container.ConnectionCallback;
 import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.jboss.resteasy.reactive.RestResponse;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.time.Duration;
-import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -39,16 +46,115 @@ import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
  *
  * <h2>Reactive Processing</h2>
  * <p>
- * The {@link #getActivities()} method demonstrates reactive processing using Mutiny and SmallRye. It returns a
+ * The {@link #getActivities(HttpServerResponse)} method demonstrates reactive processing using Mutiny and SmallRye. It returns a
  * {@link Uni} that executes a long-running task. The response is suspended until the task completes or fails.
  * In case of failure or cancellation, appropriate responses are returned.
  * </p>
  *
  * <h2>Suspended Processing</h2>
  * <p>
- * The {@link #getActivities(AsyncResponse)} method demonstrates suspended processing using {@link AsyncResponse}.
+ * The {@link #getActivities(HttpServerResponse, AsyncResponse)} method demonstrates suspended processing using {@link AsyncResponse}.
  * The request is suspended and resumed upon task completion or timeout. Lifecycle callbacks handle disconnection,
- * completion, and error scenarios.
+ * completion, and error scenarios. The timeout is registered with the shared {@link DeadlineScheduler} instead of
+ * {@link AsyncResponse#setTimeout}, and cancelled by the completion callback.
+ * </p>
+ *
+ * <h2>Client Disconnects</h2>
+ * <p>
+ * Quarkus REST never calls a {@link ConnectionCallback}, so both endpoints register a close handler on the Vert.x
+ * {@link HttpServerResponse}. It is called when the connection is closed before the response is sent, feeds the
+ * {@code ConnectionCallback} of the suspended endpoint and cancels the run of the reactive endpoint, so the task of an
+ * abandoned request is interrupted instead of running for its full duration.
+ * </p>
+ *
+ * <h2>Progress Stream</h2>
+ * <p>
+ * The {@link #stream(Sse)} method returns a {@link Multi} of Server-Sent Events: a {@code progress} event after every
+ * tick of the long-running task and an {@code activities} event on completion, the same named events as the WildFly
+ * module sends. The events are pre-built once by {@link SseFrames}, and the task is cancelled when the client closes
+ * the stream.
+ * </p>
+ *
+ * <h2>Single Flight</h2>
+ * <p>
+ * Every run of the task produces the same activities, so with {@code activity.single-flight} enabled the concurrent
+ * requests of both endpoints attach to one in-flight run per execution mode, see {@link ActivityTask#join}. Each request
+ * keeps its own timeout, and the run is only cancelled when the last request waiting for it is gone.
+ * </p>
+ *
+ * <h2>Result Cache</h2>
+ * <p>
+ * With {@code activity.cache.enabled} both endpoints read the activities from the {@link ActivityCache}. A hit resumes
+ * the response on the request thread, and the cache refreshes its entries in the background before they expire.
+ * </p>
+ *
+ * <h2>Rate Limit</h2>
+ * <p>
+ * The activity endpoints are {@link RateLimited}: the {@link RateLimitFilter} answers a client that sends more requests
+ * than its token bucket allows with {@code 429 Too Many Requests} before the request is suspended, see
+ * {@link ActivityRateLimiter}.
+ * </p>
+ *
+ * <h2>Bulkhead</h2>
+ * <p>
+ * Both endpoints are {@link Bulkheaded}: the {@link BulkheadFilter} admits a request before it is suspended, and
+ * rejects it with {@code 503 Service Unavailable} if the running requests and the wait queue of the endpoint are full.
+ * An admitted request starts its task once the {@link Bulkhead.Ticket} holds a permit, or fails fast with
+ * {@code 503 Service Unavailable} if the bulkhead sheds it because it waited too long to finish before its timeout.
+ * </p>
+ *
+ * <h2>Hedging</h2>
+ * <p>
+ * With {@code activity.hedge.enabled} the reactive endpoint hedges a slow run with a second run once the percentile
+ * delay of the recent runs passed, within a budget of extra runs, see {@link ActivityHedge}. The first successful run
+ * completes the request and the other one is cancelled.
+ * </p>
+ *
+ * <h2>Retries</h2>
+ * <p>
+ * With {@code activity.retry.enabled} both endpoints retry a run that failed with a {@link CustomException} after a
+ * jittered exponential backoff, as long as the retry fits before the timeout and the retry budget is not exhausted,
+ * see {@link ActivityRetry}. Only the error of the last run is mapped to {@code 500 Internal Server Error}.
+ * </p>
+ *
+ * <h2>Circuit Breaker</h2>
+ * <p>
+ * Every run is started through the {@link ActivityBreaker}. While the task keeps failing or slowing down the breaker is
+ * open and both endpoints answer {@code 503 Service Unavailable} with {@code Retry-After} on the request thread, without
+ * occupying a worker. After a while a few probe runs decide whether the breaker closes again.
+ * </p>
+ *
+ * <h2>Fair Scheduling</h2>
+ * <p>
+ * With {@code activity.fair.enabled} the dedicated runs of both endpoints are started through the
+ * {@link ActivityFairScheduler}, which queues the runs beyond its limit per tenant and starts them in weighted round
+ * robin order, so a tenant that floods the endpoints delays the runs of another tenant by at most one round. A shared
+ * run serves the requests of every tenant at once, so fair scheduling is disabled by default and requires
+ * {@code activity.single-flight=false}.
+ * </p>
+ *
+ * <h2>Priority Lanes</h2>
+ * <p>
+ * A request sends {@code X-Priority: batch} to run the task as a batch run, which only uses the worker slots the
+ * interactive requests leave idle and gives its thread back at the next tick once an interactive run waits, see
+ * {@link ActivityPriorities}. A shared run takes the highest priority among its requests: with
+ * {@code activity.single-flight} a batch request joins the interactive run in flight, and the header has no effect on
+ * it. Only the batch requests that find no interactive run share a batch run. A cache hit runs no task at all.
+ * </p>
+ *
+ * <h2>Deadlines</h2>
+ * <p>
+ * Both endpoints time out after 8 seconds. A run started for a single request carries the same {@link TaskDeadline},
+ * and a shared run the latest deadline of the requests attached to it, so it is dropped when it is dequeued too late,
+ * fails fast when it cannot finish in time, and stops at the first tick after the timeout instead of producing a
+ * response that would be ignored.
+ * </p>
+ *
+ * <h2>Response Body</h2>
+ * <p>
+ * Both endpoints respond with the pre-encoded bytes of {@link ActivityPayload}, so the activities are never serialized
+ * per request. They are {@link Conditional}: a request whose {@code If-None-Match} header matches the activities is
+ * answered with {@code 304 Not Modified} by the {@link ConditionalRequestFilter} before the task is started.
  * </p>
  *
  * <h2>Asynchronous Error Handling</h2>
@@ -70,18 +176,20 @@ import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
  * by the Mutiny infrastructure to handle threading efficiently.
  * </p>
  *
+ * <h2>Execution Mode</h2>
+ * <p>
+ * The long-running task sleeps for several seconds, so a platform worker thread is parked for the whole request.
+ * The {@code activity.suspended.execution-mode} and {@code activity.reactive.execution-mode} properties move an
+ * endpoint to virtual threads or to non-blocking timer ticks, see {@link ExecutionMode} and {@link ActivityTask}.
+ * </p>
+ *
  * @see Uni
  * @see AsyncResponse
  */
 @Path("/activity")
 public class ActivityResource {
 
-    private static final String ACTIVITIES =
-            """
-            ["Running", "Swimming", "Cycling"]
-            """;
-
-    private static final Random random = new Random();
+    private static final long TIMEOUT_SECONDS = 8;
 
     static {
         Infrastructure.setDroppedExceptionHandler(err ->
@@ -89,21 +197,78 @@ public class ActivityResource {
         );
     }
 
-    private final ScheduledExecutorService executor = Infrastructure.getDefaultWorkerPool();
+    @Inject
+    ActivityTask activityTask;
+
+    @Inject
+    DeadlineScheduler deadlines;
+
+    @Inject
+    ActivityCache cache;
+
+    @Inject
+    ActivityHedge hedge;
+
+    @Inject
+    ActivityRetry retry;
+
+    @Inject
+    ActivityBreaker breaker;
+
+    @Inject
+    ActivityFairScheduler fair;
+
+    @Inject
+    ActivityPriorities priorities;
+
+    @Inject
+    BulkheadAdmission admission;
+
+    @Context
+    HttpHeaders headers;
+
+    @ConfigProperty(name = "activity.suspended.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode suspendedMode;
+
+    @ConfigProperty(name = "activity.reactive.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode reactiveMode;
+
+    @ConfigProperty(name = "activity.stream.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode streamMode;
+
+    @ConfigProperty(name = "activity.single-flight", defaultValue = "true")
+    boolean singleFlight;
+
+    @ConfigProperty(name = "activity.cache.enabled", defaultValue = "false")
+    boolean cacheEnabled;
+
+    private volatile SseFrames sseFrames;
 
     @GET
     @Path( "/suspended")
+    @RateLimited
+    @Conditional
+    @Bulkheaded("suspended")
     @Produces(MediaType.APPLICATION_JSON)
-    public void getActivities(@Suspended AsyncResponse asyncResponse) {
+    public void getActivities(@Context HttpServerResponse httpResponse, @Suspended AsyncResponse asyncResponse) {
+        // Join the run of the activities once admitted, the response is only resumed once the callbacks are registered
+        var tenant = headers.getHeaderString(fair.tenantHeader());
+        var priority = priorities.of(headers.getHeaderString(priorities.header()));
+        var taskDeadline = TaskDeadline.after(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        var run = admission.ticket().run(() -> retry.execute(() -> activities(suspendedMode, tenant, priority, taskDeadline), taskDeadline));
+
         // Set timeout behavior: return 503 Service Unavailable if request takes too long
-        asyncResponse.setTimeoutHandler(response -> {
-            Log.warn("Suspended - Request timed out");
-            response.resume(Response.status(SERVICE_UNAVAILABLE).entity("Suspended - Operation timed out").build());
+        var deadline = deadlines.schedule(TIMEOUT_SECONDS, TimeUnit.SECONDS, () -> {
+            if (asyncResponse.isSuspended()) {
+                Log.warn("Suspended - Request timed out");
+                asyncResponse.resume(Response.status(SERVICE_UNAVAILABLE).entity("Suspended - Operation timed out").build());
+            }
         });
-        asyncResponse.setTimeout(8, TimeUnit.SECONDS);
 
-        // Register a callback to log completion status
+        // Register a callback to cancel the deadline, detach from the run and log completion status
         asyncResponse.register((CompletionCallback) error -> {
+            deadline.cancel();
+            run.cancel(false);
             if (error != null) {
                 Log.error("Suspended - Request completed with error: " + error.getMessage());
             } else {
@@ -112,34 +277,32 @@ public class ActivityResource {
         });
 
         // Register a callback to cancel the task if the client disconnects
-        // Note: When the client disconnects this callback is never called
-        asyncResponse.register(new ConnectionCallback() {
-            @Override
-            public void onDisconnect(AsyncResponse disconnected) {
-                Log.warn("Client disconnected. Cancelling task.");
-                disconnected.cancel();
+        // Quarkus REST never calls it on its own, so it is fed by the close handler of the response
+        ConnectionCallback onDisconnect = disconnected -> {
+            Log.warn("Client disconnected. Cancelling task.");
+            run.cancel(false);
+            disconnected.cancel();
+        };
+        asyncResponse.register(onDisconnect);
+        httpResponse.closeHandler(closed -> {
+            if (asyncResponse.isSuspended()) {
+                onDisconnect.onDisconnect(asyncResponse);
             }
         });
 
-        // Execute the asynchronous task using the managed executor service
-        executor.submit(() -> {
-            try {
-                if (random.nextBoolean()) {
-                    throw new CustomException("An error occurred");
-                }
-                longRunningTask();
-                if (asyncResponse.isSuspended()) {
-                    asyncResponse.resume(ACTIVITIES);
-                    Log.info("Suspended - Response sent successfully");
-                } else {
-                    Log.warn("Suspended - Response not sent, ignored"); // Timeout occurred
-                }
-            } catch (Exception e) {
+        // Resume the response when the run completes
+        run.whenComplete((activities, error) -> {
+            if (!asyncResponse.isSuspended() || error instanceof CancellationException) {
+                // Timeout occurred or the client disconnected, the response is resumed by whoever cancelled the run
+                Log.warn("Suspended - Response not sent, ignored");
+            } else if (error != null) {
                 Log.error("Suspended - Error during task execution");
-                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
                 // By default, the response is set to 500 Internal Server Error
                 // If we set the response to a specific status or message, the CompletionCallback is invoked without an error
-                asyncResponse.resume(e);
+                asyncResponse.resume(error);
+            } else {
+                asyncResponse.resume(ActivityPayload.ok(activities).build());
+                Log.info("Suspended - Response sent successfully");
             }
         });
 
@@ -148,50 +311,140 @@ public class ActivityResource {
 
     @GET
     @Path("/reactive")
+    @RateLimited
+    @Conditional
+    @Bulkheaded("reactive")
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<RestResponse<String>> getActivities() {
+    public Uni<Response> getActivities(@Context HttpServerResponse httpResponse) {
         Log.info("Reactive - Request received");
+        var ticket = admission.ticket();
+        var tenant = headers.getHeaderString(fair.tenantHeader());
+        var priority = priorities.of(headers.getHeaderString(priorities.header()));
+        var taskDeadline = TaskDeadline.after(TIMEOUT_SECONDS, TimeUnit.SECONDS);
         return Uni.createFrom()
-            .item(Unchecked.supplier(() -> {
-                try {
-                    if (random.nextBoolean()) {
-                        throw new CustomException("An error occurred");
+            .deferred(() -> {
+                // Cancel the run when the timeout below cancels the subscription or the client disconnects
+                var run = ticket.run(() -> retry.execute(() -> hedgedActivities(reactiveMode, tenant, priority, taskDeadline), taskDeadline));
+                httpResponse.closeHandler(closed -> {
+                    if (!run.isDone()) {
+                        Log.warn("Reactive - Client disconnected, task cancelled");
+                        run.cancel(false);
                     }
-                    longRunningTask();
-                    Log.info("Reactive - Request completed"); // If timeout occurs, or cancelled, the response should not be sent
-                    return RestResponse.ok(ACTIVITIES);
-                } catch (Exception e) {
-                    Log.error("Reactive - Error during task execution");
-                    if (e instanceof InterruptedException) Thread.currentThread().interrupt();
-                    throw e;
-                }
-            }))
-            .ifNoItem().after(Duration.ofSeconds(8)).failWith(() -> {
+                });
+                return Uni.createFrom().completionStage(run).onCancellation().invoke(() -> run.cancel(false));
+            })
+            .map(activities -> {
+                Log.info("Reactive - Request completed"); // If timeout occurs, or cancelled, the response should not be sent
+                return ActivityPayload.ok(activities).build();
+            })
+            .onFailure(ServiceUnavailableException.class).recoverWithItem(error -> {
+                Log.warn("Reactive - Request rejected: " + error.getMessage());
+                return ((ServiceUnavailableException) error).getResponse();
+            })
+            .onFailure().invoke(() -> Log.error("Reactive - Error during task execution"))
+            .ifNoItem().after(Duration.ofSeconds(TIMEOUT_SECONDS)).failWith(() -> {
                 Log.warn("Reactive - Request timed out");
                 return new ServiceUnavailableException();
             })
             .onFailure().recoverWithItem(() -> {
                 Log.error("Reactive - Request completed with error");
-                return RestResponse.serverError();
+                return Response.serverError().build();
             })
-            .onCancellation().invoke(() -> Log.warn("Reactive - Request was cancelled"))
-            .runSubscriptionOn(executor);
+            .onCancellation().invoke(() -> Log.warn("Reactive - Request was cancelled"));
     }
 
     /**
-     * Simulates a long-running task.
+     * Streams the progress of the long-running task as Server-Sent Events.
+     * <p>
+     * A {@code progress} event is sent after every tick, followed by an {@code activities} event when the task completes
+     * or an {@code error} event when it fails. The task is cancelled once the client closed the stream.
+     * </p>
      *
-     * @throws InterruptedException If the task is interrupted.
+     * @param sse The factory of the outbound events.
      */
-    private void longRunningTask() throws InterruptedException {
-        var duration = 5 + random.nextInt(7);
-        Log.info("Long-running task started. Duration: " + duration + " seconds");
-        for (int i = 0; i < duration; i++) {
-            Thread.sleep(1000);
-            if (Thread.currentThread().isInterrupted()) {
-                Log.error("Long-running task interrupted");
-                throw new InterruptedException("Task interrupted");
-            }
+    @GET
+    @Path("/stream")
+    @RateLimited
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public Multi<OutboundSseEvent> stream(@Context Sse sse) {
+        Log.info("Stream - Request received");
+        var frames = frames(sse);
+        return Multi.createFrom().emitter(emitter -> {
+            var run = activityTask.start(streamMode, (tick, duration) -> {
+                if (emitter.isCancelled()) {
+                    return false;
+                }
+                emitter.emit(frames.progress(tick, duration));
+                return true;
+            });
+            run.whenComplete((activities, error) -> {
+                if (emitter.isCancelled()) {
+                    Log.warn("Stream - Client closed the stream, task cancelled");
+                } else if (error != null) {
+                    Log.error("Stream - Error during task execution");
+                    emitter.emit(frames.failure());
+                    emitter.complete();
+                } else {
+                    emitter.emit(frames.activities(activities));
+                    emitter.complete();
+                    Log.info("Stream - Request completed");
+                }
+            });
+            emitter.onTermination(() -> run.cancel(false));
+        });
+    }
+
+    private SseFrames frames(Sse sse) {
+        var frames = sseFrames;
+        if (frames == null || !frames.isBuiltBy(sse)) {
+            frames = new SseFrames(sse);
+            sseFrames = frames;
+        }
+        return frames;
+    }
+
+    /**
+     * Hedges dedicated runs of the task if hedging is enabled, otherwise reads the activities like the other endpoints.
+     * <p>
+     * Hedging bypasses single-flight, a hedge that joined the run in flight would only wait for the same result. A
+     * cache hit needs no hedge.
+     * </p>
+     */
+    private CompletableFuture<String> hedgedActivities(ExecutionMode mode, String tenant, Priority priority, TaskDeadline deadline) {
+        if (!hedge.isEnabled() || cacheEnabled) {
+            return activities(mode, tenant, priority, deadline);
+        }
+        return hedge.execute(() -> dedicatedRun(mode, tenant, priority, deadline), deadline);
+    }
+
+    /**
+     * Reads the activities from the result cache, or joins the run of the given mode that is in flight, or starts a
+     * dedicated run bound to the deadline of the request if neither the cache nor single-flight is enabled.
+     * <p>
+     * Cached runs outlive a single request, they are not bound to its deadline. A shared run is bound to the latest
+     * deadline of the requests attached to it, and stopped by cancellation once no request waits for it. The runs are
+     * started through the circuit breaker, a cache hit needs none. A shared run passes the breaker once, the requests
+     * attached to it only observe its result.
+     * </p>
+     */
+    private CompletableFuture<String> activities(ExecutionMode mode, String tenant, Priority priority, TaskDeadline deadline) {
+        if (cacheEnabled) {
+            return cache.get(mode);
         }
+        if (singleFlight) {
+            return activityTask.join(mode, deadline, priority, breaker::execute);
+        }
+        return dedicatedRun(mode, tenant, priority, deadline);
+    }
+
+    /**
+     * Starts a run for a single request once it is the turn of its tenant, through the circuit breaker, in the lane of
+     * its priority.
+     * <p>
+     * A shared run serves the requests of every tenant, only the dedicated runs are scheduled per tenant.
+     * </p>
+     */
+    private CompletableFuture<String> dedicatedRun(ExecutionMode mode, String tenant, Priority priority, TaskDeadline deadline) {
+        return fair.execute(tenant, () -> breaker.execute(() -> activityTask.start(mode, deadline, priority)));
     }
 }
@@ -0,0 +1,433 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+import io.vertx.core.Vertx;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the simulated long-running activity task.
+ * <p>
+ * The task fails with a {@link CustomException} half of the time, otherwise it takes 5 to 11 one-second ticks and
+ * completes with the {@link #ACTIVITIES} payload. Every run is represented by a {@link CompletableFuture}, so the
+ * callers do not depend on the {@link ExecutionMode} that drives the ticks. Concurrent callers can share a run with
+ * {@link #join(ExecutionMode, TaskDeadline, Priority, Function)}.
+ * </p>
+ *
+ * <h2>Deadlines</h2>
+ * <p>
+ * A run started for a request carries the {@link TaskDeadline} of the request, a shared run the latest deadline of the
+ * requests attached to it. A run dequeued after its deadline is
+ * dropped without touching the thread any longer, a run whose duration cannot fit before the deadline fails fast, and a
+ * run stops at the first tick after its deadline or after its future was cancelled, so the thread is given back instead
+ * of finishing a response that would be ignored.
+ * </p>
+ *
+ * <h2>Thread based execution</h2>
+ * <p>
+ * In {@link ExecutionMode#PLATFORM} and {@link ExecutionMode#VIRTUAL} mode the task occupies a thread of the matching
+ * executor and sleeps between the ticks. After every tick the thread checks its interrupted flag. The {@link Future}
+ * of the task is kept, so cancelling the run interrupts the sleeping thread at once: a request that times out or loses
+ * its client gives its thread back immediately instead of at the next tick.
+ * </p>
+ *
+ * <h2>Priority lanes</h2>
+ * <p>
+ * A thread based run waits for a slot of the {@link PriorityLanes} of its {@link Priority} before it is submitted, so
+ * the batch runs only use the threads the interactive runs leave idle. A batch run that is preempted by a waiting
+ * interactive run gives its thread back after its current tick and resumes at the next tick once it holds a slot again.
+ * </p>
+ *
+ * <h2>Timer based execution</h2>
+ * <p>
+ * In {@link ExecutionMode#TIMER} mode no thread waits for the task. Each tick is a Vert.x timer on the event loop,
+ * which schedules the next tick until the task is finished, so a single event-loop thread can hold tens of thousands
+ * of pending runs. Interruption is replaced by cancellation: cancelling the run cancels its pending timer.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityTask {
+
+    static final String ACTIVITIES =
+            """
+            ["Running", "Swimming", "Cycling"]
+            """;
+
+    static final int MIN_DURATION = 5;
+
+    static final int MAX_DURATION = 11;
+
+    private static final long TICK_MILLIS = 1000;
+
+    private static final String BEYOND_DEADLINE = "Activity task cannot finish before the deadline of the request";
+
+    private static final Random random = new Random();
+
+    private final SingleFlight<Flight, String> flights = new SingleFlight<>();
+
+    /**
+     * Number of threads occupied by a running task.
+     */
+    private final AtomicInteger workers = new AtomicInteger();
+
+    private final LongAdder interrupted = new LongAdder();
+
+    @Inject
+    ActivityExecutors executors;
+
+    @Inject
+    ActivityPriorities priorities;
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @Inject
+    Vertx vertx;
+
+    @PostConstruct
+    void init() {
+        metrics.register("task.workers", workers::get);
+        metrics.register("task.interrupted", interrupted::sum);
+    }
+
+    /**
+     * Starts a new run of the task.
+     *
+     * @param mode The execution mode that drives the run.
+     * @return The future of the run, completed with the activities or with the failure of the task.
+     */
+    public CompletableFuture<String> start(ExecutionMode mode) {
+        return start(mode, ProgressListener.NONE);
+    }
+
+    /**
+     * Attaches to the run of the given mode and priority that is in flight, or starts a new one.
+     * <p>
+     * All runs produce the same activities, so concurrent callers share a single run through a {@link SingleFlight}.
+     * Each caller receives its own future: cancelling it only detaches the caller, and the shared run is cancelled when
+     * the last caller detached.
+     * </p>
+     * <p>
+     * Only a caller that starts a new run passes it to the launcher, so a wrapper like the circuit breaker observes the
+     * shared run once instead of once for every caller attached to it.
+     * </p>
+     * <p>
+     * The shared run is bound to the latest deadline of the callers attached to it: it is dropped when it is dequeued
+     * after every caller timed out, fails fast when it cannot finish before the deadline known when it starts, and stops
+     * at the first tick after the last caller timed out.
+     * </p>
+     * <p>
+     * A shared run takes the lane of the highest priority among its callers. An interactive caller only attaches to an
+     * interactive run, so it never waits for a batch run that can be preempted. A batch caller attaches to the
+     * interactive run in flight, and only starts or attaches to a batch run if there is none. Without the priority lanes
+     * every run is interactive.
+     * </p>
+     *
+     * @param mode The execution mode that drives the run.
+     * @param deadline The deadline of the request.
+     * @param priority The priority of the request.
+     * @param launcher Starts the shared run with the given starter, for example through the circuit breaker.
+     * @return The future of the caller, completed with the activities or with the failure of the shared run.
+     */
+    public CompletableFuture<String> join(ExecutionMode mode, TaskDeadline deadline, Priority priority,
+                                          Function<Supplier<CompletableFuture<String>>, CompletableFuture<String>> launcher) {
+        var lane = priorities.isEnabled() ? priority : Priority.INTERACTIVE;
+        if (lane == Priority.BATCH) {
+            var attached = flights.attach(new Flight(mode, Priority.INTERACTIVE), deadline);
+            if (attached != null) {
+                return attached;
+            }
+        }
+        return flights.join(new Flight(mode, lane), deadline, shared -> launcher.apply(() -> start(mode, shared, lane)));
+    }
+
+    /**
+     * Starts a new run of the task on behalf of a request with the given deadline.
+     * <p>
+     * The run is dropped if it is dequeued after the deadline, fails fast with a {@link ServiceUnavailableException}
+     * if its duration cannot fit before the deadline, and stops at the first tick after the deadline.
+     * </p>
+     *
+     * @param mode The execution mode that drives the run.
+     * @param deadline The deadline of the request.
+     * @return The future of the run, completed with the activities or with the failure of the task.
+     */
+    public CompletableFuture<String> start(ExecutionMode mode, TaskDeadline deadline) {
+        return start(mode, ProgressListener.NONE, deadline);
+    }
+
+    /**
+     * Starts a new run of the task that reports its ticks.
+     *
+     * @param mode The execution mode that drives the run.
+     * @param progress Receives the ticks of the run, it can cancel the run by returning {@code false}.
+     * @return The future of the run, completed with the activities or with the failure of the task.
+     */
+    public CompletableFuture<String> start(ExecutionMode mode, ProgressListener progress) {
+        return start(mode, progress, TaskDeadline.NONE);
+    }
+
+    /**
+     * Starts a new run of the task on behalf of a request with the given deadline and priority.
+     * <p>
+     * A thread based run takes a slot of the lane of its priority before it occupies a thread, and a batch run gives its
+     * thread back at the next tick once an interactive run waits for a slot, see {@link ActivityPriorities}.
+     * </p>
+     *
+     * @param mode The execution mode that drives the run.
+     * @param deadline The deadline of the request.
+     * @param priority The priority of the run.
+     * @return The future of the run, completed with the activities or with the failure of the task.
+     */
+    public CompletableFuture<String> start(ExecutionMode mode, TaskDeadline deadline, Priority priority) {
+        return start(mode, ProgressListener.NONE, deadline, priority);
+    }
+
+    private CompletableFuture<String> start(ExecutionMode mode, ProgressListener progress, TaskDeadline deadline) {
+        return start(mode, progress, deadline, Priority.INTERACTIVE);
+    }
+
+    private CompletableFuture<String> start(ExecutionMode mode, ProgressListener progress, TaskDeadline deadline, Priority priority) {
+        var run = new CompletableFuture<String>();
+        switch (mode) {
+            case PLATFORM -> new Worker(executors.platform(), run, progress, deadline, priority).schedule();
+            case VIRTUAL -> new Worker(executors.virtual(), run, progress, deadline, priority).schedule();
+            case TIMER -> runOnTimer(run, progress, deadline);
+        }
+        return run;
+    }
+
+    private void runOnTimer(CompletableFuture<String> run, ProgressListener progress, TaskDeadline deadline) {
+        if (random.nextBoolean()) {
+            run.completeExceptionally(new CustomException("An error occurred"));
+            return;
+        }
+        var duration = duration();
+        if (!deadline.allows(duration * TICK_MILLIS, TimeUnit.MILLISECONDS)) {
+            Log.warn("Timer task rejected, " + duration + " seconds do not fit before its deadline");
+            run.completeExceptionally(new ServiceUnavailableException(BEYOND_DEADLINE));
+            return;
+        }
+        Log.info("Timer task started. Duration: " + duration + " seconds");
+        var timer = new AtomicLong(-1);
+        run.whenComplete((activities, error) -> {
+            if (run.isCancelled()) {
+                vertx.cancelTimer(timer.get());
+            }
+        });
+        scheduleTick(run, progress, deadline, timer, 1, duration);
+    }
+
+    /**
+     * Schedules a tick of a timer run, the id of the pending timer is kept in {@code timer} so the run can cancel it.
+     * A run cancelled while its next timer is being set is still stopped by that tick.
+     */
+    private void scheduleTick(CompletableFuture<String> run, ProgressListener progress, TaskDeadline deadline, AtomicLong timer, int tick, int duration) {
+        timer.set(vertx.setTimer(TICK_MILLIS, id -> {
+            if (run.isCancelled()) {
+                Log.error("Timer task cancelled");
+            } else if (deadline.isExpired()) {
+                Log.warn("Timer task stopped, its deadline has passed");
+                run.cancel(false);
+            } else if (!progress.onTick(tick, duration)) {
+                Log.warn("Timer task abandoned by its listener");
+                run.cancel(false);
+            } else if (tick < duration) {
+                scheduleTick(run, progress, deadline, timer, tick + 1, duration);
+            } else {
+                run.complete(ACTIVITIES);
+            }
+        }));
+    }
+
+    private static int duration() {
+        return MIN_DURATION + random.nextInt(MAX_DURATION - MIN_DURATION + 1);
+    }
+
+    /**
+     * Outcome of a stretch of ticks of a thread based run.
+     */
+    private enum Outcome {
+        COMPLETED,
+        STOPPED,
+        PREEMPTED
+    }
+
+    /**
+     * A thread based run, which occupies a thread of its executor from the tick it starts or resumes at until it
+     * completes, stops or is preempted.
+     */
+    private final class Worker implements Runnable {
+
+        private final ExecutorService executor;
+
+        private final CompletableFuture<String> run;
+
+        private final ProgressListener progress;
+
+        private final TaskDeadline deadline;
+
+        private final Priority priority;
+
+        /**
+         * The next tick of the run, starting at the first.
+         */
+        private int tick = 1;
+
+        /**
+         * The number of ticks, {@code 0} until the run first occupied a thread.
+         */
+        private int duration;
+
+        /**
+         * The lease of the latest slot, released when the run completes.
+         */
+        private volatile PriorityLanes.Lease lease;
+
+        /**
+         * The latest submission to the executor, interrupted when the run is cancelled.
+         */
+        private volatile Future<?> thread;
+
+        Worker(ExecutorService executor, CompletableFuture<String> run, ProgressListener progress, TaskDeadline deadline, Priority priority) {
+            this.executor = executor;
+            this.run = run;
+            this.progress = progress;
+            this.deadline = deadline;
+            this.priority = priority;
+            // Interrupt the worker as soon as the run is cancelled instead of letting it sleep until its next tick.
+            // A worker that cancels its own run is done by then, so the interrupt it sends itself is harmless.
+            run.whenComplete((activities, error) -> {
+                var slot = lease;
+                if (slot != null) {
+                    slot.release();
+                }
+                var submitted = thread;
+                if (run.isCancelled() && submitted != null) {
+                    submitted.cancel(true);
+                }
+            });
+        }
+
+        /**
+         * Takes a slot in the lane of the run if the lanes are enabled, and submits the run once it holds one.
+         */
+        void schedule() {
+            if (!priorities.isEnabled()) {
+                submit();
+                return;
+            }
+            var queued = priorities.submit(priority, granted -> {
+                lease = granted;
+                submit();
+            });
+            lease = queued;
+            if (run.isDone()) {
+                queued.release();
+            }
+        }
+
+        private void submit() {
+            thread = executor.submit(this);
+        }
+
+        @Override
+        public void run() {
+            if (run.isDone()) {
+                Log.warn("Long-running task dropped, it was cancelled while queued");
+                return;
+            }
+            if (deadline.isExpired()) {
+                Log.warn("Long-running task dropped, its deadline passed while queued");
+                run.cancel(false);
+                return;
+            }
+            workers.incrementAndGet();
+            try {
+                if (duration == 0) {
+                    if (random.nextBoolean()) {
+                        throw new CustomException("An error occurred");
+                    }
+                    duration = duration();
+                    if (!deadline.allows(duration * TICK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        Log.warn("Long-running task rejected, " + duration + " seconds do not fit before its deadline");
+                        throw new ServiceUnavailableException(BEYOND_DEADLINE);
+                    }
+                    Log.info("Long-running task started. Duration: " + duration + " seconds");
+                } else {
+                    Log.info("Long-running task resumed at tick " + tick + " of " + duration);
+                }
+                switch (longRunningTask()) {
+                    case COMPLETED -> run.complete(ACTIVITIES);
+                    case STOPPED -> run.cancel(false);
+                    case PREEMPTED -> {
+                        Log.info("Batch task preempted before tick " + tick + " of " + duration + ", its thread is given back");
+                        lease.release();
+                        schedule();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Log.warn("Long-running task interrupted, its run was cancelled");
+                interrupted.increment();
+                Thread.currentThread().interrupt();
+                run.completeExceptionally(e);
+            } catch (Exception e) {
+                run.completeExceptionally(e);
+            } finally {
+                workers.decrementAndGet();
+            }
+        }
+
+        /**
+         * Simulates a long-running task from the next tick of the run.
+         * <p>
+         * Between two ticks a batch run whose lease was preempted stops, and the next tick is resumed on a new slot.
+         * </p>
+         *
+         * @return Whether the task completed, was stopped because it was cancelled, expired or abandoned, or was preempted.
+         * @throws InterruptedException If the task is interrupted.
+         */
+        private Outcome longRunningTask() throws InterruptedException {
+            for (; tick <= duration; tick++) {
+                Thread.sleep(TICK_MILLIS);
+                if (Thread.currentThread().isInterrupted()) {
+                    Log.error("Long-running task interrupted");
+                    throw new InterruptedException("Task interrupted");
+                }
+                if (run.isCancelled() || deadline.isExpired()) {
+                    Log.warn("Long-running task stopped, its request is gone");
+                    return Outcome.STOPPED;
+                }
+                if (!progress.onTick(tick, duration)) {
+                    Log.warn("Long-running task abandoned by its listener");
+                    return Outcome.STOPPED;
+                }
+                var slot = lease;
+                if (tick < duration && slot != null && slot.isPreempted()) {
+                    tick++;
+                    return Outcome.PREEMPTED;
+                }
+            }
+            return Outcome.COMPLETED;
+        }
+    }
+
+    /**
+     * The key of a shared run, the runs of each mode are shared per lane.
+     */
+    private record Flight(ExecutionMode mode, Priority priority) {
+    }
+}
@@ -0,0 +1,75 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Admits the requests of the {@link Bulkheaded} endpoints before their resource method is invoked.
+ * <p>
+ * A rejected request is answered with {@code 503 Service Unavailable} and {@code Retry-After} straight from the filter,
+ * so it is never suspended and never waits for its timeout. An admitted request receives its {@link Bulkhead.Ticket}
+ * through the {@link BulkheadAdmission}. The resource releases the ticket when the task of the request finishes, and
+ * the response filter releases it as well, which covers the requests aborted by another filter.
+ * </p>
+ * <p>
+ * The filter runs after the other filters of the endpoints, so a request answered by them never takes a permit.
+ * </p>
+ */
+@Provider
+@Bulkheaded
+@Priority(Priorities.USER + 1000)
+public class BulkheadFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String TICKET = BulkheadFilter.class.getName() + ".ticket";
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    Bulkheads bulkheads;
+
+    @Inject
+    BulkheadAdmission admission;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!bulkheads.isEnabled()) {
+            return;
+        }
+        var bulkhead = bulkheads.get(name());
+        var ticket = bulkhead.tryEnter();
+        if (ticket.isEmpty()) {
+            Log.warn("Bulkhead - " + bulkhead.name() + " is full, request rejected");
+            requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, bulkhead.retryAfterSeconds())
+                    .build());
+            return;
+        }
+        requestContext.setProperty(TICKET, ticket.get());
+        admission.admit(ticket.get());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (requestContext.getProperty(TICKET) instanceof Bulkhead.Ticket ticket) {
+            ticket.release();
+        }
+    }
+
+    private String name() {
+        var method = resourceInfo.getResourceMethod();
+        var bulkheaded = method.getAnnotation(Bulkheaded.class);
+        return bulkheaded == null || bulkheaded.value().isEmpty() ? method.getName() : bulkheaded.value();
+    }
+}
@@ -0,0 +1,22 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.NameBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds the {@link BulkheadFilter} to an endpoint, which is limited by the {@link Bulkhead} of the given name.
+ */
+@NameBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkheaded {
+
+    /**
+     * The name of the bulkhead, which selects its {@code activity.bulkhead.<name>.*} configuration properties.
+     */
+    String value() default "";
+}
@@ -0,0 +1,90 @@
+package io.crunch.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates and holds the {@link Bulkhead} of every endpoint.
+ * <p>
+ * The bulkhead named {@code suspended} reads {@code activity.bulkhead.suspended.max-concurrent} and
+ * {@code activity.bulkhead.suspended.max-queue}, falling back to {@code activity.bulkhead.max-concurrent} and
+ * {@code activity.bulkhead.max-queue}. The limit type and the load shedding settings are shared by all bulkheads.
+ * The limit and the running, queued, rejected and shed requests of every bulkhead are registered as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class Bulkheads {
+
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @Inject
+    Config config;
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @ConfigProperty(name = "activity.bulkhead.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "activity.bulkhead.max-concurrent", defaultValue = "100")
+    int maxConcurrent;
+
+    @ConfigProperty(name = "activity.bulkhead.max-queue", defaultValue = "100")
+    int maxQueue;
+
+    @ConfigProperty(name = "activity.bulkhead.limit", defaultValue = "FIXED")
+    Bulkhead.LimitType limitType;
+
+    @ConfigProperty(name = "activity.bulkhead.initial-limit", defaultValue = "20")
+    int initialLimit;
+
+    @ConfigProperty(name = "activity.bulkhead.min-limit", defaultValue = "1")
+    int minLimit;
+
+    @ConfigProperty(name = "activity.bulkhead.target-millis", defaultValue = "500")
+    long targetMillis;
+
+    @ConfigProperty(name = "activity.bulkhead.interval-millis", defaultValue = "5000")
+    long intervalMillis;
+
+    @ConfigProperty(name = "activity.bulkhead.max-sojourn-millis", defaultValue = "3000")
+    long maxSojournMillis;
+
+    @ConfigProperty(name = "activity.bulkhead.retry-after-seconds", defaultValue = "1")
+    long retryAfterSeconds;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the bulkhead of the given name, creating it on first use.
+     */
+    public Bulkhead get(String name) {
+        return bulkheads.computeIfAbsent(name, this::create);
+    }
+
+    private Bulkhead create(String name) {
+        var prefix = "activity.bulkhead." + name;
+        var limits = new Bulkhead.Limits(
+                config.getOptionalValue(prefix + ".max-concurrent", Integer.class).orElse(maxConcurrent),
+                config.getOptionalValue(prefix + ".max-queue", Integer.class).orElse(maxQueue),
+                targetMillis, intervalMillis, maxSojournMillis, retryAfterSeconds);
+        var gradient = switch (limitType) {
+            case FIXED -> null;
+            case GRADIENT -> new GradientLimit(initialLimit, Math.min(minLimit, limits.maxConcurrent()), limits.maxConcurrent());
+        };
+        var bulkhead = new Bulkhead(name, limits, gradient);
+        metrics.register("bulkhead." + name + ".limit", bulkhead::limit);
+        metrics.register("bulkhead." + name + ".running", bulkhead::running);
+        metrics.register("bulkhead." + name + ".queued", bulkhead::queued);
+        metrics.register("bulkhead." + name + ".rejected", bulkhead::rejected);
+        metrics.register("bulkhead." + name + ".shed", bulkhead::shed);
+        metrics.register("bulkhead." + name + ".overloaded", () -> bulkhead.isOverloaded() ? 1 : 0);
+        return bulkhead;
+    }
+}
@@ -0,0 +1,52 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Answers conditional requests of the activities before the long-running task is started.
+ * <p>
+ * The activities only change when the application is redeployed, so a client that already holds them is answered with
+ * {@code 304 Not Modified} straight from the filter: no task is submitted to an executor and no timeout is scheduled.
+ * </p>
+ * <p>
+ * The {@code If-None-Match} header is compared with the entity tag of the {@link ActivityPayload}, and {@code *}
+ * matches it as well. The payload has no modification time, so {@code If-Modified-Since} is not evaluated.
+ * </p>
+ */
+@Provider
+@Conditional
+public class ConditionalRequestFilter implements ContainerRequestFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        var payload = ActivityPayload.ACTIVITIES;
+        var ifNoneMatch = requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && matches(payload, ifNoneMatch)) {
+            Log.info("Conditional - Activities not modified, task skipped");
+            requestContext.abortWith(Response.notModified(payload.entityTag()).build());
+        }
+    }
+
+    private static boolean matches(ActivityPayload payload, String ifNoneMatch) {
+        for (var value : ifNoneMatch.split(",")) {
+            var tag = value.strip();
+            if (tag.equals("*")) {
+                return true;
+            }
+            try {
+                if (!tag.isEmpty() && payload.matches(EntityTag.valueOf(tag))) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // Ignore the malformed entity tag, the others can still match
+            }
+        }
+        return false;
+    }
+}
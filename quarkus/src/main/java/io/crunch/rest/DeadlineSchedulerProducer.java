@@ -0,0 +1,48 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Produces the {@link DeadlineScheduler} selected by the {@code activity.deadline.scheduler} configuration property.
+ */
+@ApplicationScoped
+public class DeadlineSchedulerProducer {
+
+    @ConfigProperty(name = "activity.deadline.scheduler", defaultValue = "WHEEL")
+    DeadlineScheduler.Type type;
+
+    @ConfigProperty(name = "activity.deadline.tick-millis", defaultValue = "100")
+    long tickMillis;
+
+    @ConfigProperty(name = "activity.deadline.wheel-size", defaultValue = "512")
+    int wheelSize;
+
+    @Produces
+    @ApplicationScoped
+    DeadlineScheduler deadlineScheduler() {
+        Log.info("Request deadlines are scheduled by " + type);
+        return switch (type) {
+            case WHEEL -> {
+                var timer = new HashedWheelTimer(runnable -> {
+                    var thread = new Thread(runnable, "activity-deadline-wheel");
+                    thread.setDaemon(true);
+                    return thread;
+                }, Infrastructure.getDefaultWorkerPool(), tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+                timer.start();
+                yield timer;
+            }
+            case EXECUTOR -> new ExecutorDeadlineScheduler(Infrastructure.getDefaultWorkerPool());
+        };
+    }
+
+    void close(@Disposes DeadlineScheduler scheduler) {
+        scheduler.close();
+    }
+}
@@ -0,0 +1,16 @@
+package io.crunch.rest;
+
+/**
+ * Selects how the long-running activity task is executed.
+ * <ul>
+ *     <li>{@link #PLATFORM} – the task runs on the shared worker pool, one platform thread per in-flight request.</li>
+ *     <li>{@link #VIRTUAL} – the task runs on a Java 21 virtual thread, so a sleeping task only parks a continuation.</li>
+ *     <li>{@link #TIMER} – the task holds no thread at all, every one-second tick is a Vert.x timer callback
+ *     on the event loop.</li>
+ * </ul>
+ */
+public enum ExecutionMode {
+    PLATFORM,
+    VIRTUAL,
+    TIMER
+}
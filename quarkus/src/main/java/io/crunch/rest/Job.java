@@ -0,0 +1,136 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An activity task submitted through the job API.
+ * <p>
+ * A job is created in {@link Status#PENDING} state and moves exactly once to {@link Status#SUCCEEDED} or
+ * {@link Status#FAILED} when its task completes. The outcome is published through the volatile status field, so readers
+ * never need a lock.
+ * </p>
+ * <p>
+ * Long-polling clients wait for the completion through {@link #onCompletion(Runnable)}. The listeners form a lock-free
+ * stack that the completing thread swaps for a sentinel and runs directly, so a waiting client costs one node and no
+ * thread.
+ * </p>
+ */
+public final class Job {
+
+    private static final Listener COMPLETED = new Listener(() -> {});
+
+    public enum Status {
+        PENDING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String id;
+
+    private volatile Status status = Status.PENDING;
+
+    private String result;
+
+    private Throwable failure;
+
+    private final AtomicReference<Listener> listeners = new AtomicReference<>();
+
+    Job(String id) {
+        this.id = id;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the activities of a succeeded job, {@code null} otherwise.
+     */
+    public String result() {
+        return status == Status.SUCCEEDED ? result : null;
+    }
+
+    /**
+     * Returns the failure of a failed job, {@code null} otherwise.
+     */
+    public Throwable failure() {
+        return status == Status.FAILED ? failure : null;
+    }
+
+    /**
+     * Registers a listener that runs once when the job completes.
+     * <p>
+     * The listener runs on the thread that completes the job, or immediately on the calling thread if the job has
+     * already completed.
+     * </p>
+     *
+     * @param action The action to run on completion.
+     * @return The registration that removes the listener.
+     */
+    public Registration onCompletion(Runnable action) {
+        var listener = new Listener(action);
+        for (;;) {
+            var head = listeners.get();
+            if (head == COMPLETED) {
+                action.run();
+                return listener;
+            }
+            listener.next = head;
+            if (listeners.compareAndSet(head, listener)) {
+                return listener;
+            }
+        }
+    }
+
+    void complete(String result, Throwable failure) {
+        this.result = result;
+        this.failure = failure;
+        // The volatile write publishes the outcome
+        this.status = failure == null ? Status.SUCCEEDED : Status.FAILED;
+        for (var listener = listeners.getAndSet(COMPLETED); listener != null; listener = listener.next) {
+            if (!listener.removed) {
+                try {
+                    listener.action.run();
+                } catch (RuntimeException e) {
+                    Log.error("Job completion listener failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle of a registered completion listener.
+     */
+    public interface Registration {
+
+        /**
+         * Removes the listener, it does not run if the job completes afterward.
+         */
+        void remove();
+    }
+
+    private static final class Listener implements Registration {
+
+        private final Runnable action;
+
+        private Listener next;
+
+        private volatile boolean removed;
+
+        Listener(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void remove() {
+            // Removed listeners stay linked until the job completes, which bounds their lifetime to the job's
+            removed = true;
+        }
+    }
+}
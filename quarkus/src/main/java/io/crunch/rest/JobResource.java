@@ -0,0 +1,140 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * REST resource that runs the long-running activity task as an asynchronous job.
+ * <p>
+ * The suspended and reactive endpoints keep the HTTP connection open until the task completes. The job API releases
+ * the connection immediately instead: {@code POST /activity/jobs} starts the task and returns {@code 202 Accepted}
+ * with the job identifier and its {@code Location}, then the client polls {@code GET /activity/jobs/{id}}.
+ * </p>
+ *
+ * <h2>Job Status</h2>
+ * <p>
+ * - A pending job returns its {@link JobStatus}.
+ * - A succeeded job returns the activities.
+ * - A failed job is reported through the {@link CustomException} flow, so the client receives the same error response
+ *   as on the other endpoints.
+ * - An unknown or evicted job returns 404 Not Found.
+ * </p>
+ *
+ * <h2>Long Polling</h2>
+ * <p>
+ * With the {@code wait} query parameter, for example {@code ?wait=5s} or {@code ?wait=500ms}, the status request of a
+ * pending job is parked until the job completes or the wait expires, whichever comes first. The parked request is a
+ * {@link Uni} whose emitter is registered as a completion listener of the job and as a deadline of the shared
+ * {@link DeadlineScheduler}, so neither a thread nor a sleep is spent per waiting client.
+ * </p>
+ *
+ * <h2>Priority</h2>
+ * <p>
+ * Nobody waits for a job interactively, so its task is a {@link Priority#BATCH} run that only uses the worker slots
+ * the interactive requests leave idle, see {@link ActivityPriorities}.
+ * </p>
+ *
+ * @see JobStore
+ */
+@Path("/activity/jobs")
+public class JobResource {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private static final Pattern WAIT = Pattern.compile("(\\d{1,9})(ms|s)?");
+
+    @Inject
+    ActivityTask activityTask;
+
+    @Inject
+    JobStore jobs;
+
+    @Inject
+    DeadlineScheduler deadlines;
+
+    @ConfigProperty(name = "activity.jobs.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode jobsMode;
+
+    @ConfigProperty(name = "activity.jobs.max-wait-seconds", defaultValue = "30")
+    long maxWaitSeconds;
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response submit(@Context UriInfo uriInfo) {
+        var job = jobs.submit(() -> activityTask.start(jobsMode, TaskDeadline.NONE, Priority.BATCH))
+                .orElseThrow(() -> new ServiceUnavailableException("Job store is full", RETRY_AFTER_SECONDS));
+        Log.info("Job - " + job.id() + " accepted");
+        return Response.accepted(JobStatus.of(job))
+                .location(uriInfo.getAbsolutePathBuilder().path(job.id()).build())
+                .build();
+    }
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> status(@PathParam("id") String id, @QueryParam("wait") String wait) {
+        var job = jobs.find(id).orElseThrow(NotFoundException::new);
+        var waitMillis = waitMillis(wait);
+        if (job.status() != Job.Status.PENDING || waitMillis == 0) {
+            return Uni.createFrom().item(() -> toResponse(job));
+        }
+        return Uni.createFrom().<Job>emitter(emitter -> {
+            var timeout = deadlines.schedule(waitMillis, TimeUnit.MILLISECONDS, () -> emitter.complete(job));
+            var registration = job.onCompletion(() -> {
+                timeout.cancel();
+                emitter.complete(job);
+            });
+            emitter.onTermination(() -> {
+                timeout.cancel();
+                registration.remove();
+            });
+        }).map(completed -> toResponse(completed));
+    }
+
+    private Response toResponse(Job job) {
+        return switch (job.status()) {
+            case PENDING -> Response.ok(JobStatus.of(job)).build();
+            case SUCCEEDED -> ActivityPayload.ok(job.result()).build();
+            case FAILED -> throw failure(job);
+        };
+    }
+
+    /**
+     * Parses the {@code wait} query parameter, a number of seconds or milliseconds capped at the maximum wait.
+     */
+    private long waitMillis(String wait) {
+        if (wait == null || wait.isBlank()) {
+            return 0;
+        }
+        var matcher = WAIT.matcher(wait.strip());
+        if (!matcher.matches()) {
+            throw new BadRequestException("Invalid wait: " + wait);
+        }
+        var amount = Long.parseLong(matcher.group(1));
+        var millis = "ms".equals(matcher.group(2)) ? amount : TimeUnit.SECONDS.toMillis(amount);
+        return Math.min(millis, TimeUnit.SECONDS.toMillis(maxWaitSeconds));
+    }
+
+    private static CustomException failure(Job job) {
+        Log.error("Job - " + job.id() + " failed");
+        return job.failure() instanceof CustomException e ? e : new CustomException("Job failed", job.failure());
+    }
+}
@@ -0,0 +1,45 @@
+package io.crunch.rest;
+
+/**
+ * Pre-encoded JSON payloads of the activity progress stream.
+ * <p>
+ * The stream emits one progress payload per tick of the long-running task, for example
+ * {@code {"tick":3,"duration":7}}. The payloads of every tick of every possible duration are encoded once when the
+ * class is loaded, so sending a progress event costs a table lookup instead of a serialization.
+ * </p>
+ */
+public final class ProgressFrames {
+
+    /**
+     * Payload sent instead of the activities when the task fails.
+     */
+    public static final String FAILURE = "{\"error\":\"Activity task failed\"}";
+
+    private static final String[][] PROGRESS = new String[ActivityTask.MAX_DURATION + 1][];
+
+    static {
+        for (int duration = 1; duration <= ActivityTask.MAX_DURATION; duration++) {
+            PROGRESS[duration] = new String[duration + 1];
+            for (int tick = 1; tick <= duration; tick++) {
+                PROGRESS[duration][tick] = encode(tick, duration);
+            }
+        }
+    }
+
+    private ProgressFrames() {
+    }
+
+    /**
+     * Returns the payload of the given tick.
+     */
+    public static String progress(int tick, int duration) {
+        if (duration < 1 || duration > ActivityTask.MAX_DURATION || tick < 1 || tick > duration) {
+            return encode(tick, duration);
+        }
+        return PROGRESS[duration][tick];
+    }
+
+    private static String encode(int tick, int duration) {
+        return "{\"tick\":" + tick + ",\"duration\":" + duration + "}";
+    }
+}
@@ -0,0 +1,55 @@
+package io.crunch.rest;
+
+import io.quarkus.logging.Log;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests of the {@link RateLimited} endpoints per client before their resource method is invoked.
+ * <p>
+ * A client over its rate is answered with {@code 429 Too Many Requests} and a {@code Retry-After} of the seconds until
+ * its bucket holds a token again, straight from the filter. The filter runs before the other filters of the
+ * endpoints, so a rejected request is never suspended and never takes a bulkhead permit.
+ * </p>
+ */
+@Provider
+@RateLimited
+@Priority(Priorities.USER - 1000)
+public class RateLimitFilter implements ContainerRequestFilter {
+
+    @Context
+    HttpServerRequest request;
+
+    @Inject
+    ActivityRateLimiter rateLimiter;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!rateLimiter.isEnabled()) {
+            return;
+        }
+        var apiKey = rateLimiter.keyHeader().map(requestContext::getHeaderString).orElse(null);
+        var wait = rateLimiter.tryAcquire(apiKey, address());
+        if (wait > 0) {
+            Log.warn("Rate limit - Client " + address() + " is over its rate, request rejected");
+            requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, TimeUnit.NANOSECONDS.toSeconds(wait) + 1)
+                    .build());
+        }
+    }
+
+    private String address() {
+        var address = request.remoteAddress();
+        return address == null ? "unknown" : address.host();
+    }
+}
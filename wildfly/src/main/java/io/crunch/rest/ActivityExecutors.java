@@ -0,0 +1,109 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the executors that run the long-running activity task in the thread based {@link ExecutionMode}s.
+ * <p>
+ * In {@link ExecutionMode#PLATFORM} mode the default managed executor service is used, which parks one of its pooled
+ * platform threads for the whole duration of the task.
+ * </p>
+ * <p>
+ * In {@link ExecutionMode#VIRTUAL} mode every task is started on its own virtual thread. Jakarta Concurrency 3.0
+ * (Jakarta EE 10) cannot declare virtual managed threads yet, so the tasks are wrapped by the default
+ * {@link ContextService} before they are handed over, which propagates the same application, naming and security
+ * context a managed thread would have.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityExecutors {
+
+    @Resource(mappedName = "java:comp/DefaultManagedExecutorService")
+    private ManagedExecutorService managedExecutorService;
+
+    @Resource(mappedName = "java:comp/DefaultContextService")
+    private ContextService contextService;
+
+    private ExecutorService virtualThreads;
+
+    @PostConstruct
+    void init() {
+        var threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("activity-virtual-", 0).factory());
+        virtualThreads = new ContextualExecutorService(threads, contextService);
+    }
+
+    @PreDestroy
+    void destroy() {
+        virtualThreads.shutdownNow();
+    }
+
+    /**
+     * Returns the default managed executor service.
+     */
+    public ExecutorService platform() {
+        return managedExecutorService;
+    }
+
+    /**
+     * Returns the contextual virtual-thread executor.
+     */
+    public ExecutorService virtual() {
+        return virtualThreads;
+    }
+
+    /**
+     * Executor service that captures the container context of the submitting thread for every task.
+     */
+    private static final class ContextualExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        private final ContextService contextService;
+
+        ContextualExecutorService(ExecutorService delegate, ContextService contextService) {
+            this.delegate = delegate;
+            this.contextService = contextService;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(contextService.contextualRunnable(command));
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Weighted fair scheduling of the dedicated runs of the activity task between tenants.
+ * <p>
+ * With one FIFO queue in front of the workers a burst of one tenant delays the runs of every other tenant. With
+ * {@code activity.fair.enabled} at most {@code activity.fair.max-running} dedicated runs are started at the same time,
+ * and the runs beyond that wait in one queue per tenant that the {@link FairScheduler} serves in deficit round robin
+ * order. A tenant is identified by its {@code activity.fair.tenant-header}, the requests without one share the
+ * {@value #ANONYMOUS} tenant. The tenant named {@code gold} starts {@code activity.fair.tenant.gold.weight} runs per
+ * round, the tenants without a configured weight start {@code activity.fair.default-weight}.
+ * </p>
+ * <p>
+ * Only dedicated runs are scheduled per tenant. With {@code activity.single-flight}, the default, the suspended and
+ * reactive requests of all tenants share one run per execution mode and never reach the scheduler, so fair scheduling
+ * is disabled by default and requires {@code activity.single-flight=false}. The limit defaults to the capacity of the
+ * {@link ActivityPriorities priority lanes}: a higher limit would start runs that only wait in the FIFO queue of a
+ * lane, where the tenants are no longer told apart.
+ * </p>
+ * <p>
+ * The running and queued runs and the number of tenants with queued runs are registered as metrics while fair
+ * scheduling is enabled.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityFairScheduler {
+
+    /**
+     * The tenant of the requests without a tenant header.
+     */
+    static final String ANONYMOUS = "anonymous";
+
+    private static final String TENANT_PREFIX = "activity.fair.tenant.";
+
+    private static final String WEIGHT_SUFFIX = ".weight";
+
+    @Inject
+    Config config;
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @Inject
+    @ConfigProperty(name = "activity.fair.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "activity.fair.max-running", defaultValue = "40")
+    int maxRunning;
+
+    @Inject
+    @ConfigProperty(name = "activity.fair.default-weight", defaultValue = "1")
+    int defaultWeight;
+
+    @Inject
+    @ConfigProperty(name = "activity.fair.tenant-header", defaultValue = "X-Tenant")
+    String tenantHeader;
+
+    private FairScheduler scheduler;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        var weights = new HashMap<String, Integer>();
+        for (var property : config.getPropertyNames()) {
+            if (property.startsWith(TENANT_PREFIX) && property.endsWith(WEIGHT_SUFFIX)
+                    && property.length() > TENANT_PREFIX.length() + WEIGHT_SUFFIX.length()) {
+                var tenant = property.substring(TENANT_PREFIX.length(), property.length() - WEIGHT_SUFFIX.length());
+                weights.put(tenant, config.getValue(property, Integer.class));
+            }
+        }
+        scheduler = new FairScheduler(maxRunning, weights, defaultWeight);
+        metrics.register("fair.running", scheduler::running);
+        metrics.register("fair.queued", scheduler::queued);
+        metrics.register("fair.tenants", scheduler::backlogged);
+    }
+
+    /**
+     * Returns the request header that identifies a tenant.
+     */
+    public String tenantHeader() {
+        return tenantHeader;
+    }
+
+    /**
+     * Starts the run of the tenant once it is its turn, or at once if fair scheduling is disabled.
+     *
+     * @param tenant The tenant header of the request, can be {@code null}.
+     * @param run Starts the run.
+     * @return The future of the run. Cancelling it removes a queued run from the queue of the tenant.
+     */
+    public <T> CompletableFuture<T> execute(String tenant, Supplier<CompletableFuture<T>> run) {
+        if (!enabled) {
+            return run.get();
+        }
+        return scheduler.submit(tenant == null || tenant.isBlank() ? ANONYMOUS : tenant, run);
+    }
+}
@@ -0,0 +1,40 @@
+package io.crunch.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the counters and gauges exposed by {@link MetricsResource}.
+ * <p>
+ * Components register a {@link LongSupplier} per metric when they are initialized, and the values are only read when
+ * the metrics are requested, so recording a metric never costs more than the counter the component keeps anyway.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityMetrics {
+
+    private final ConcurrentSkipListMap<String, LongSupplier> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * Registers a metric, replacing the metric registered with the same name.
+     *
+     * @param name The name of the metric, for example {@code cache.hits}.
+     * @param value Reads the current value of the metric.
+     */
+    public void register(String name, LongSupplier value) {
+        metrics.put(name, value);
+    }
+
+    /**
+     * Reads the current value of every metric, ordered by name.
+     */
+    public Map<String, Long> snapshot() {
+        var snapshot = new LinkedHashMap<String, Long>();
+        metrics.forEach((name, value) -> snapshot.put(name, value.getAsLong()));
+        return snapshot;
+    }
+}
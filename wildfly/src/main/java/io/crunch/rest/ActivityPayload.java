@@ -0,0 +1,89 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Pre-encoded response body of a static JSON payload.
+ * <p>
+ * The activities never change, yet every successful request used to encode the same {@link String} to UTF-8 through
+ * the message body writer. This class encodes the payload once and every response writes the shared byte array as is.
+ * </p>
+ * <p>
+ * The payload is not compressed: a body as short as the activities grows under {@code gzip} and {@code deflate}, so a
+ * compressed variant would never be the one sent.
+ * </p>
+ *
+ * <h2>Entity Tag</h2>
+ * <p>
+ * The response carries a strong {@link EntityTag} derived from the SHA-256 digest of the bytes. It identifies the
+ * content itself, so it is the only validator sent; no {@code Last-Modified} time is known for the payload.
+ * </p>
+ */
+public final class ActivityPayload {
+
+    /**
+     * The pre-encoded {@link ActivityTask#ACTIVITIES} payload.
+     */
+    public static final ActivityPayload ACTIVITIES = new ActivityPayload(ActivityTask.ACTIVITIES);
+
+    private final String json;
+
+    private final byte[] body;
+
+    private final EntityTag entityTag;
+
+    ActivityPayload(String json) {
+        this.json = json;
+        this.body = json.getBytes(StandardCharsets.UTF_8);
+        this.entityTag = new EntityTag(digest(body));
+    }
+
+    /**
+     * Builds the response of the given payload, using the pre-encoded bytes of the activities.
+     *
+     * @param payload The payload produced by the task.
+     * @return The response builder with the body and the entity tag.
+     */
+    public static Response.ResponseBuilder ok(String payload) {
+        return ACTIVITIES.json.equals(payload) ? ACTIVITIES.ok() : Response.ok(payload);
+    }
+
+    /**
+     * Builds the response with the pre-encoded bytes.
+     *
+     * @return The response builder with the body and the entity tag.
+     */
+    public Response.ResponseBuilder ok() {
+        return Response.ok(body).tag(entityTag);
+    }
+
+    /**
+     * Returns the strong entity tag of the payload.
+     */
+    public EntityTag entityTag() {
+        return entityTag;
+    }
+
+    /**
+     * Checks whether an entity tag of the {@code If-None-Match} header identifies the payload.
+     */
+    public boolean matches(EntityTag tag) {
+        return entityTag.getValue().equals(tag.getValue());
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            var hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
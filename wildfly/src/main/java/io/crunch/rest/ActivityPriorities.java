@@ -0,0 +1,88 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Priority lanes in front of the executors of the thread based {@link ExecutionMode}s.
+ * <p>
+ * The same endpoints serve users and nightly batch jobs. With {@code activity.priority.enabled} the runs on the
+ * platform and virtual threads take one of {@code activity.priority.capacity} slots of the {@link PriorityLanes},
+ * {@code activity.priority.reserved} of which only interactive runs can take. A batch run uses the idle slots and is
+ * preempted at its next tick once an interactive run waits, see {@link ActivityTask}. A request selects its priority
+ * with the {@code activity.priority.header}, {@code batch} or {@code interactive}, and the runs of the Job API are
+ * always batch runs. Timer runs hold no thread between their ticks and bypass the lanes. A shared run of
+ * {@code activity.single-flight} takes the highest priority among its requests, a batch request joins the interactive
+ * run in flight and the header has no effect on it, see {@link ActivityTask#join}.
+ * </p>
+ * <p>
+ * The running and queued runs of both lanes and the preempted batch runs are registered as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityPriorities {
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @Inject
+    @ConfigProperty(name = "activity.priority.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "activity.priority.capacity", defaultValue = "40")
+    int capacity;
+
+    @Inject
+    @ConfigProperty(name = "activity.priority.reserved", defaultValue = "10")
+    int reserved;
+
+    @Inject
+    @ConfigProperty(name = "activity.priority.header", defaultValue = "X-Priority")
+    String header;
+
+    private PriorityLanes lanes;
+
+    @PostConstruct
+    void init() {
+        lanes = new PriorityLanes(capacity, reserved);
+        for (var priority : Priority.values()) {
+            var name = priority.name().toLowerCase(Locale.ROOT);
+            metrics.register("priority." + name + ".running", () -> lanes.running(priority));
+            metrics.register("priority." + name + ".queued", () -> lanes.queued(priority));
+        }
+        metrics.register("priority.preempted", lanes::preempted);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the request header that selects the priority of a request.
+     */
+    public String header() {
+        return header;
+    }
+
+    /**
+     * Returns the priority selected by the header of a request, a missing or unknown value is interactive.
+     *
+     * @param value The priority header of the request, can be {@code null}.
+     */
+    public Priority of(String value) {
+        return value != null && value.trim().equalsIgnoreCase(Priority.BATCH.name()) ? Priority.BATCH : Priority.INTERACTIVE;
+    }
+
+    /**
+     * Queues a run in the lane of its priority, see {@link PriorityLanes#submit}.
+     */
+    public PriorityLanes.Lease submit(Priority priority, Consumer<PriorityLanes.Lease> start) {
+        return lanes.submit(priority, start);
+    }
+}
@@ -0,0 +1,89 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+
+/**
+ * Per-client rate limit of the activity endpoints.
+ * <p>
+ * A few misbehaving clients could fill the worker pool on their own. With {@code activity.rate-limit.enabled} every
+ * client may send {@code activity.rate-limit.burst} requests at once and {@code activity.rate-limit.rate-per-second}
+ * requests per second on average, see {@link RateLimiter}. The limiter is disabled by default, a single load
+ * generator would otherwise be answered with {@code 429} for most of its requests.
+ * </p>
+ * <p>
+ * A client is identified by its address. The header is not authenticated, so a client could bypass its limit with a
+ * new value per request: only set {@code activity.rate-limit.key-header} if a gateway in front of the application
+ * verifies it, then a client is identified by the header and by its address if it sends none. At most
+ * {@code activity.rate-limit.max-clients} clients are tracked at once.
+ * </p>
+ * <p>
+ * The number of tracked clients and the rejected and evicted buckets are registered as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityRateLimiter {
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @Inject
+    @ConfigProperty(name = "activity.rate-limit.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "activity.rate-limit.rate-per-second", defaultValue = "5")
+    double ratePerSecond;
+
+    @Inject
+    @ConfigProperty(name = "activity.rate-limit.burst", defaultValue = "20")
+    int burst;
+
+    @Inject
+    @ConfigProperty(name = "activity.rate-limit.idle-seconds", defaultValue = "60")
+    long idleSeconds;
+
+    @Inject
+    @ConfigProperty(name = "activity.rate-limit.max-clients", defaultValue = "10000")
+    int maxClients;
+
+    @Inject
+    @ConfigProperty(name = "activity.rate-limit.key-header")
+    Optional<String> keyHeader;
+
+    private RateLimiter limiter;
+
+    @PostConstruct
+    void init() {
+        limiter = new RateLimiter(ratePerSecond, burst, idleSeconds, maxClients);
+        metrics.register("rate-limit.clients", limiter::clients);
+        metrics.register("rate-limit.rejected", limiter::rejected);
+        metrics.register("rate-limit.evicted", limiter::evicted);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the request header that identifies a client, if one is configured.
+     */
+    public Optional<String> keyHeader() {
+        return keyHeader;
+    }
+
+    /**
+     * Takes a token of the client.
+     *
+     * @param apiKey The key header of the request, {@code null} if none is configured or the request has none.
+     * @param address The address of the client, used if the request has no key header.
+     * @return {@code 0} if the request is allowed, otherwise the nanoseconds until the client may send a request.
+     */
+    public long tryAcquire(String apiKey, String address) {
+        return limiter.tryAcquire(apiKey == null || apiKey.isBlank() ? "address:" + address : "key:" + apiKey);
+    }
+}
@@ -1,8 +1,7 @@
 package io.crunch.rest;
 
-import jakarta.annotation.Resource;
-import jakarta.enterprise.concurrent.ManagedExecutorService;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -10,11 +9,16 @@ import jakarta.ws.rs.container.AsyncResponse;
 import jakarta.ws.rs.container.CompletionCallback;
 import jakarta.ws.rs.container.ConnectionCallback;
 import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
-import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
@@ -70,7 +74,22 @@ import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
  * <h2>Timeout Handling</h2>
  * <p>
  * {@code AsyncResponse} also supports timeout settings, where a timeout value can be specified when suspending a connection.
- * This prevents the server from waiting indefinitely for a response.
+ * This prevents the server from waiting indefinitely for a response. Instead of scheduling a container timer per request,
+ * both endpoints register their timeout with the shared {@link DeadlineScheduler} and cancel it when the request completes.
+ * </p>
+ *
+ * <h2>Client Disconnects</h2>
+ * <p>
+ * A client that closes its connection is detected by {@link ClientDisconnect} with the close listener of the Undertow
+ * connection, which feeds the {@code ConnectionCallback} of the suspended endpoint and cancels the run of the reactive
+ * endpoint, so the task of an abandoned request is interrupted instead of running for its full duration.
+ * </p>
+ *
+ * <h2>Progress Stream</h2>
+ * <p>
+ * The {@link #stream(SseEventSink, Sse)} method sends Server-Sent Events through an {@link SseEventSink}: a progress
+ * event after every tick of the long-running task and the activities on completion. The events are pre-built once by
+ * {@link SseFrames}, and the task is cancelled when the client closes the stream.
  * </p>
  *
  * <h2>Demonstration of Asynchronous Processing</h2>
@@ -79,39 +98,194 @@ import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
  * and can intentionally generate errors to showcase failure handling.
  * </p>
  *
+ * <h2>Single Flight</h2>
+ * <p>
+ * Every run of the task produces the same activities, so with {@code activity.single-flight} enabled the concurrent
+ * requests of both endpoints attach to one in-flight run per execution mode, see {@link ActivityTask#join}. Each request
+ * keeps its own timeout, and the run is only cancelled when the last request waiting for it is gone.
+ * </p>
+ *
+ * <h2>Result Cache</h2>
+ * <p>
+ * With {@code activity.cache.enabled} both endpoints read the activities from the {@link ActivityCache}. A hit resumes
+ * the response on the request thread, and the cache refreshes its entries in the background before they expire.
+ * </p>
+ *
+ * <h2>Rate Limit</h2>
+ * <p>
+ * The activity endpoints are {@link RateLimited}: the {@link RateLimitFilter} answers a client that sends more requests
+ * than its token bucket allows with {@code 429 Too Many Requests} before the request is suspended, see
+ * {@link ActivityRateLimiter}.
+ * </p>
+ *
+ * <h2>Bulkhead</h2>
+ * <p>
+ * Both endpoints are {@link Bulkheaded}: the {@link BulkheadFilter} admits a request before it is suspended, and
+ * rejects it with {@code 503 Service Unavailable} if the running requests and the wait queue of the endpoint are full.
+ * An admitted request starts its task once the {@link Bulkhead.Ticket} holds a permit, or fails fast with
+ * {@code 503 Service Unavailable} if the bulkhead sheds it because it waited too long to finish before its timeout.
+ * </p>
+ *
+ * <h2>Hedging</h2>
+ * <p>
+ * With {@code activity.hedge.enabled} the reactive endpoint hedges a slow run with a second run once the percentile
+ * delay of the recent runs passed, within a budget of extra runs, see {@link ActivityHedge}. The first successful run
+ * completes the request and the other one is cancelled.
+ * </p>
+ *
+ * <h2>Retries</h2>
+ * <p>
+ * With {@code activity.retry.enabled} both endpoints retry a run that failed with a {@link CustomException} after a
+ * jittered exponential backoff, as long as the retry fits before the timeout and the retry budget is not exhausted,
+ * see {@link ActivityRetry}. Only the error of the last run is mapped to {@code 500 Internal Server Error}.
+ * </p>
+ *
+ * <h2>Circuit Breaker</h2>
+ * <p>
+ * Every run is started through the {@link ActivityBreaker}. While the task keeps failing or slowing down the breaker is
+ * open and both endpoints answer {@code 503 Service Unavailable} with {@code Retry-After} on the request thread, without
+ * occupying a worker. After a while a few probe runs decide whether the breaker closes again.
+ * </p>
+ *
+ * <h2>Fair Scheduling</h2>
+ * <p>
+ * With {@code activity.fair.enabled} the dedicated runs of both endpoints are started through the
+ * {@link ActivityFairScheduler}, which queues the runs beyond its limit per tenant and starts them in weighted round
+ * robin order, so a tenant that floods the endpoints delays the runs of another tenant by at most one round. A shared
+ * run serves the requests of every tenant at once, so fair scheduling is disabled by default and requires
+ * {@code activity.single-flight=false}.
+ * </p>
+ *
+ * <h2>Priority Lanes</h2>
+ * <p>
+ * A request sends {@code X-Priority: batch} to run the task as a batch run, which only uses the worker slots the
+ * interactive requests leave idle and gives its thread back at the next tick once an interactive run waits, see
+ * {@link ActivityPriorities}. A shared run takes the highest priority among its requests: with
+ * {@code activity.single-flight} a batch request joins the interactive run in flight, and the header has no effect on
+ * it. Only the batch requests that find no interactive run share a batch run. A cache hit runs no task at all.
+ * </p>
+ *
+ * <h2>Deadlines</h2>
+ * <p>
+ * Both endpoints time out after 8 seconds. A run started for a single request carries the same {@link TaskDeadline},
+ * and a shared run the latest deadline of the requests attached to it, so it is dropped when it is dequeued too late,
+ * fails fast when it cannot finish in time, and stops at the first tick after the timeout instead of producing a
+ * response that would be ignored.
+ * </p>
+ *
+ * <h2>Response Body</h2>
+ * <p>
+ * Both endpoints respond with the pre-encoded bytes of {@link ActivityPayload}, so the activities are never serialized
+ * per request. They are {@link Conditional}: a request whose {@code If-None-Match} header matches the activities is
+ * answered with {@code 304 Not Modified} by the {@link ConditionalRequestFilter} before the task is started.
+ * </p>
+ *
  * <h2>Executor Service</h2>
  * <p>
  * {@code ActivityResource} utilizes a managed executor service to handle requests asynchronously.
+ * The {@code activity.suspended.execution-mode} and {@code activity.reactive.execution-mode} properties move an endpoint
+ * to virtual threads or to non-blocking timer ticks instead, see {@link ExecutionMode} and {@link ActivityTask}.
  * </p>
- * <p><strong>Note:</strong> {@code @ApplicationScoped} is required to enable injection of the {@code ManagedExecutorService}.</p>
+ * <p><strong>Note:</strong> {@code @ApplicationScoped} is required to enable injection of the {@code ActivityTask}.</p>
  */
 @ApplicationScoped
 @Path("/activity")
 public class ActivityResource {
 
+    private static final long TIMEOUT_SECONDS = 8;
+
     private final Logger log = Logger.getLogger(ActivityResource.class);
 
     /**
-     * Injects the default managed executor service provided by the Jakarta EE platform.
+     * Runs the long-running task in the execution mode configured for the endpoint.
      * <p>
-     * The default Managed Executor Service instance’s JNDI name is <i>java:comp/DefaultManagedExecutorService</i>.
-     * This executor service is used to handle asynchronous request execution.
+     * By default the task runs on the managed executor service provided by the Jakarta EE platform, whose JNDI name is
+     * <i>java:comp/DefaultManagedExecutorService</i>.
      * </p>
      */
-    @Resource(mappedName = "java:comp/DefaultManagedExecutorService")
-    private ManagedExecutorService managedExecutorService;
+    @Inject
+    ActivityTask activityTask;
+
+    /**
+     * Schedules the 8 second request timeouts of both endpoints.
+     */
+    @Inject
+    DeadlineScheduler deadlines;
+
+    /**
+     * Serves the activities without running the task when {@code activity.cache.enabled} is set.
+     */
+    @Inject
+    ActivityCache cache;
+
+    /**
+     * Hedges the slow runs of the reactive endpoint when {@code activity.hedge.enabled} is set.
+     */
+    @Inject
+    ActivityHedge hedge;
 
-    private static final String ACTIVITIES =
-            """
-            ["Running", "Swimming", "Cycling"]
-            """;
+    /**
+     * Retries the failed runs of both endpoints when {@code activity.retry.enabled} is set.
+     */
+    @Inject
+    ActivityRetry retry;
 
-    private static final Random random = new Random();
+    /**
+     * Rejects the runs of both endpoints at once while the task keeps failing.
+     */
+    @Inject
+    ActivityBreaker breaker;
+
+    /**
+     * Shares the dedicated runs of both endpoints fairly between the tenants.
+     */
+    @Inject
+    ActivityFairScheduler fair;
+
+    /**
+     * Reads the priority of the dedicated runs of both endpoints from the request.
+     */
+    @Inject
+    ActivityPriorities priorities;
+
+    /**
+     * The bulkhead ticket of the request, handed over by the {@link BulkheadFilter}.
+     */
+    @Inject
+    BulkheadAdmission admission;
+
+    /**
+     * The headers of the current request, read for the tenant of its runs.
+     */
+    @Context
+    HttpHeaders headers;
+
+    @Inject
+    @ConfigProperty(name = "activity.suspended.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode suspendedMode;
+
+    @Inject
+    @ConfigProperty(name = "activity.reactive.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode reactiveMode;
+
+    @Inject
+    @ConfigProperty(name = "activity.stream.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode streamMode;
+
+    @Inject
+    @ConfigProperty(name = "activity.single-flight", defaultValue = "true")
+    boolean singleFlight;
+
+    @Inject
+    @ConfigProperty(name = "activity.cache.enabled", defaultValue = "false")
+    boolean cacheEnabled;
+
+    private volatile SseFrames sseFrames;
 
     /**
      * Asynchronously retrieves a list of activities using a reactive programming model.
      * <p>
-     * This method executes the logic asynchronously using {@link CompletableFuture} and the managed executor service.
+     * This method executes the logic asynchronously using {@link CompletableFuture} and the configured execution mode.
      * If the operation is successful, a JSON response with activity types is returned.
      * If an error occurs, it is logged and propagated back as an exception.
      * </p>
@@ -120,28 +294,38 @@ public class ActivityResource {
      */
     @GET
     @Path("/reactive")
+    @RateLimited
+    @Conditional
+    @Bulkheaded("reactive")
     @Produces(MediaType.APPLICATION_JSON)
     public CompletionStage<Response> getActivities() {
         var response = new CompletableFuture<Response>();
-        managedExecutorService.execute(() -> {
-            try {
-                if (random.nextBoolean()) {
-                    throw new CustomException("An error occurred");
-                }
-                longRunningTask();
-                if (!response.isDone()) {
-                    response.complete(Response.ok(ACTIVITIES).build());
-                    log.info("Reactive - Request completed successfully");
-                } else {
-                    log.warn("Reactive - Response not sent, ignored"); // Timeout occurred
-                }
-            } catch (Exception e) {
-                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+        var tenant = headers.getHeaderString(fair.tenantHeader());
+        var priority = priorities.of(headers.getHeaderString(priorities.header()));
+        var taskDeadline = TaskDeadline.after(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        var run = admission.ticket().run(() -> retry.execute(() -> hedgedActivities(reactiveMode, tenant, priority, taskDeadline), taskDeadline));
+        run.whenComplete((activities, error) -> {
+            if (response.isDone() || error instanceof CancellationException) {
+                // Timeout occurred or the client disconnected, the response is completed by whoever cancelled the run
+                log.warn("Reactive - Response not sent, ignored");
+            } else if (error != null) {
                 log.error("Reactive - Error during task execution");
-                response.completeExceptionally(e);
+                response.completeExceptionally(error);
+            } else {
+                response.complete(ActivityPayload.ok(activities).build());
+                log.info("Reactive - Request completed successfully");
             }
         });
-        response.completeOnTimeout(Response.status(SERVICE_UNAVAILABLE).entity("Reactive - Operation timed out").build(), 8, TimeUnit.SECONDS);
+        var deadline = deadlines.schedule(TIMEOUT_SECONDS, TimeUnit.SECONDS, () ->
+                response.complete(Response.status(SERVICE_UNAVAILABLE).entity("Reactive - Operation timed out").build()));
+        response.whenComplete((result, error) -> {
+            deadline.cancel();
+            run.cancel(false);
+        });
+        ClientDisconnect.register(() -> {
+            log.warn("Reactive - Client disconnected, task cancelled");
+            run.cancel(false);
+        });
 
         log.info("Reactive - Request is being processed asynchronously");
         return response;
@@ -159,17 +343,29 @@ public class ActivityResource {
      */
     @GET
     @Path( "/suspended")
+    @RateLimited
+    @Conditional
+    @Bulkheaded("suspended")
     @Produces(MediaType.APPLICATION_JSON)
     public void getActivities(@Suspended AsyncResponse asyncResponse) {
+        // Join the run of the activities once admitted, the response is only resumed once the callbacks are registered
+        var tenant = headers.getHeaderString(fair.tenantHeader());
+        var priority = priorities.of(headers.getHeaderString(priorities.header()));
+        var taskDeadline = TaskDeadline.after(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        var run = admission.ticket().run(() -> retry.execute(() -> activities(suspendedMode, tenant, priority, taskDeadline), taskDeadline));
+
         // Set timeout behavior: return 503 Service Unavailable if request takes too long
-        asyncResponse.setTimeoutHandler(response -> {
-            log.warn("Suspended - Request timed out");
-            response.resume(Response.status(SERVICE_UNAVAILABLE).entity("Suspended - Operation timed out").build());
+        var deadline = deadlines.schedule(TIMEOUT_SECONDS, TimeUnit.SECONDS, () -> {
+            if (asyncResponse.isSuspended()) {
+                log.warn("Suspended - Request timed out");
+                asyncResponse.resume(Response.status(SERVICE_UNAVAILABLE).entity("Suspended - Operation timed out").build());
+            }
         });
-        asyncResponse.setTimeout(8, TimeUnit.SECONDS);
 
-        // Register a callback to log completion status
+        // Register a callback to cancel the deadline, detach from the run and log completion status
         asyncResponse.register((CompletionCallback) error -> {
+            deadline.cancel();
+            run.cancel(false);
             if (error != null) {
                 log.error("Suspended - Request completed with error: " + error.getMessage());
             } else {
@@ -178,31 +374,32 @@ public class ActivityResource {
         });
 
         // Register a callback to cancel the task if the client disconnects
-        // Note: When the client disconnects this callback is never called
-        asyncResponse.register((ConnectionCallback) disconnected -> {
+        // RESTEasy never calls it on its own, so it is fed by the close listener of the Undertow connection
+        ConnectionCallback onDisconnect = disconnected -> {
             log.warn("Client disconnected. Cancelling task.");
+            run.cancel(false);
             disconnected.cancel();
+        };
+        asyncResponse.register(onDisconnect);
+        ClientDisconnect.register(() -> {
+            if (asyncResponse.isSuspended()) {
+                onDisconnect.onDisconnect(asyncResponse);
+            }
         });
 
-        // Execute the asynchronous task using the managed executor service
-        managedExecutorService.submit(() -> {
-            try {
-                if (random.nextBoolean()) {
-                    throw new CustomException("An error occurred");
-                }
-                longRunningTask();
-                if (asyncResponse.isSuspended()) {
-                    asyncResponse.resume(ACTIVITIES);
-                    log.info("Suspended - Response sent successfully");
-                } else {
-                    log.warn("Suspended - Response not sent, ignored"); // Timeout occurred
-                }
-            } catch (Exception e) {
+        // Resume the response when the run completes
+        run.whenComplete((activities, error) -> {
+            if (!asyncResponse.isSuspended() || error instanceof CancellationException) {
+                // Timeout occurred or the client disconnected, the response is resumed by whoever cancelled the run
+                log.warn("Suspended - Response not sent, ignored");
+            } else if (error != null) {
                 log.error("Suspended - Error during task execution");
-                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
                 // By default, the response is set to 500 Internal Server Error
                 // If we set the response to a specific status or message, the CompletionCallback is invoked without an error
-                asyncResponse.resume(e);
+                asyncResponse.resume(error);
+            } else {
+                asyncResponse.resume(ActivityPayload.ok(activities).build());
+                log.info("Suspended - Response sent successfully");
             }
         });
 
@@ -210,19 +407,94 @@ public class ActivityResource {
     }
 
     /**
-     * Simulates a long-running task.
+     * Streams the progress of the long-running task as Server-Sent Events.
+     * <p>
+     * A {@code progress} event is sent after every tick, followed by an {@code activities} event when the task completes
+     * or an {@code error} event when it fails. The task is abandoned at its next tick once the client closed the stream.
+     * </p>
      *
-     * @throws InterruptedException If the task is interrupted.
-     */
-    private void longRunningTask() throws InterruptedException {
-        var duration = 5 + random.nextInt(7);
-        log.info("Long-running task started. Duration: " + duration + " seconds");
-        for (int i = 0; i < duration; i++) {
-            Thread.sleep(1000);
-            if (Thread.currentThread().isInterrupted()) {
-                log.error("Long-running task interrupted");
-                throw new InterruptedException("Task interrupted");
+     * @param sink The event sink of the client connection.
+     * @param sse The factory of the outbound events.
+     */
+    @GET
+    @Path("/stream")
+    @RateLimited
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@Context SseEventSink sink, @Context Sse sse) {
+        var frames = frames(sse);
+        activityTask.start(streamMode, (tick, duration) -> {
+            if (sink.isClosed()) {
+                return false;
+            }
+            sink.send(frames.progress(tick, duration));
+            return true;
+        }).whenComplete((activities, error) -> {
+            if (sink.isClosed()) {
+                log.warn("Stream - Client closed the stream, task cancelled");
+                return;
             }
+            if (error != null) {
+                log.error("Stream - Error during task execution");
+            } else {
+                log.info("Stream - Request completed");
+            }
+            sink.send(error != null ? frames.failure() : frames.activities(activities)).whenComplete((result, sendError) -> sink.close());
+        });
+
+        log.info("Stream - Request is being processed asynchronously");
+    }
+
+    private SseFrames frames(Sse sse) {
+        var frames = sseFrames;
+        if (frames == null || !frames.isBuiltBy(sse)) {
+            frames = new SseFrames(sse);
+            sseFrames = frames;
+        }
+        return frames;
+    }
+
+    /**
+     * Hedges dedicated runs of the task if hedging is enabled, otherwise reads the activities like the other endpoints.
+     * <p>
+     * Hedging bypasses single-flight, a hedge that joined the run in flight would only wait for the same result. A
+     * cache hit needs no hedge.
+     * </p>
+     */
+    private CompletableFuture<String> hedgedActivities(ExecutionMode mode, String tenant, Priority priority, TaskDeadline deadline) {
+        if (!hedge.isEnabled() || cacheEnabled) {
+            return activities(mode, tenant, priority, deadline);
         }
+        return hedge.execute(() -> dedicatedRun(mode, tenant, priority, deadline), deadline);
+    }
+
+    /**
+     * Reads the activities from the result cache, or joins the run of the given mode that is in flight, or starts a
+     * dedicated run bound to the deadline of the request if neither the cache nor single-flight is enabled.
+     * <p>
+     * Cached runs outlive a single request, they are not bound to its deadline. A shared run is bound to the latest
+     * deadline of the requests attached to it, and stopped by cancellation once no request waits for it. The runs are
+     * started through the circuit breaker, a cache hit needs none. A shared run passes the breaker once, the requests
+     * attached to it only observe its result.
+     * </p>
+     */
+    private CompletableFuture<String> activities(ExecutionMode mode, String tenant, Priority priority, TaskDeadline deadline) {
+        if (cacheEnabled) {
+            return cache.get(mode);
+        }
+        if (singleFlight) {
+            return activityTask.join(mode, deadline, priority, breaker::execute);
+        }
+        return dedicatedRun(mode, tenant, priority, deadline);
+    }
+
+    /**
+     * Starts a run for a single request once it is the turn of its tenant, through the circuit breaker, in the lane of
+     * its priority.
+     * <p>
+     * A shared run serves the requests of every tenant, only the dedicated runs are scheduled per tenant.
+     * </p>
+     */
+    private CompletableFuture<String> dedicatedRun(ExecutionMode mode, String tenant, Priority priority, TaskDeadline deadline) {
+        return fair.execute(tenant, () -> breaker.execute(() -> activityTask.start(mode, deadline, priority)));
     }
 }
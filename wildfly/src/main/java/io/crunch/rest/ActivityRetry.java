@@ -0,0 +1,77 @@
+package io.crunch.rest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Retry policy of the long-running task.
+ * <p>
+ * Half of the runs fail with a {@link CustomException}, which used to be mapped straight to
+ * {@code 500 Internal Server Error}. With {@code activity.retry.enabled} a run that fails with a
+ * {@link CustomException} is retried, see {@link Retry}, while the runs that cannot finish before the deadline of the
+ * request or that were cancelled are not. A retry must leave time for the shortest run of the task before the
+ * deadline of the request.
+ * </p>
+ * <p>
+ * The started, succeeded, failed and skipped retries and the remaining budget are registered as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class ActivityRetry {
+
+    @Inject
+    DeadlineScheduler deadlines;
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @Inject
+    @ConfigProperty(name = "activity.retry.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    @ConfigProperty(name = "activity.retry.max-attempts", defaultValue = "3")
+    int maxAttempts;
+
+    @Inject
+    @ConfigProperty(name = "activity.retry.base-delay-millis", defaultValue = "100")
+    long baseDelayMillis;
+
+    @Inject
+    @ConfigProperty(name = "activity.retry.max-delay-millis", defaultValue = "1000")
+    long maxDelayMillis;
+
+    @Inject
+    @ConfigProperty(name = "activity.retry.budget-percent", defaultValue = "20")
+    int budgetPercent;
+
+    private Retry retry;
+
+    @PostConstruct
+    void init() {
+        retry = new Retry(deadlines, maxAttempts, baseDelayMillis, maxDelayMillis,
+                ActivityTask.MIN_DURATION * 1000L, budgetPercent, CustomException.class::isInstance);
+        metrics.register("retry.retried", retry::retried);
+        metrics.register("retry.succeeded", retry::succeeded);
+        metrics.register("retry.failed", retry::failed);
+        metrics.register("retry.denied", retry::denied);
+        metrics.register("retry.beyond-deadline", retry::beyondDeadline);
+        metrics.register("retry.budget", retry::budget);
+    }
+
+    /**
+     * Executes the runs, retrying the failed ones if retries are enabled.
+     *
+     * @param run Starts a run of the task.
+     * @param deadline The deadline of the request.
+     * @return The future of the first successful run, cancelling it cancels the current run.
+     */
+    public CompletableFuture<String> execute(Supplier<CompletableFuture<String>> run, TaskDeadline deadline) {
+        return enabled ? retry.execute(run, deadline) : run.get();
+    }
+}
@@ -0,0 +1,23 @@
+package io.crunch.rest;
+
+import jakarta.enterprise.context.RequestScoped;
+
+/**
+ * Passes the {@link Bulkhead.Ticket} of a request from the {@link BulkheadFilter} to the resource method.
+ */
+@RequestScoped
+public class BulkheadAdmission {
+
+    private Bulkhead.Ticket ticket = Bulkhead.Ticket.UNBOUNDED;
+
+    void admit(Bulkhead.Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    /**
+     * Returns the ticket of the request, or {@link Bulkhead.Ticket#UNBOUNDED} if the request is not limited.
+     */
+    public Bulkhead.Ticket ticket() {
+        return ticket;
+    }
+}
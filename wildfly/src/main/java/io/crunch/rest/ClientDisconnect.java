@@ -0,0 +1,71 @@
+package io.crunch.rest;
+
+import io.undertow.server.ServerConnection;
+import io.undertow.servlet.handlers.ServletRequestContext;
+import io.undertow.util.AttachmentKey;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects the clients that close their connection while their request is still being processed.
+ * <p>
+ * RESTEasy never calls a {@link jakarta.ws.rs.container.ConnectionCallback} on Undertow, so the requests of the
+ * clients that gave up kept their task running for its full duration. The close listeners of the Undertow connection
+ * are called when the connection is closed, but they cannot be removed, and a keep-alive connection serves many
+ * requests. Every connection therefore gets a single listener, attached to the connection, which runs the actions of
+ * the requests that are still in flight. An action is forgotten as soon as the exchange of its request completes.
+ * </p>
+ */
+final class ClientDisconnect {
+
+    private static final AttachmentKey<ClientDisconnect> KEY = AttachmentKey.create(ClientDisconnect.class);
+
+    private final Set<Runnable> inFlight = ConcurrentHashMap.newKeySet();
+
+    private ClientDisconnect() {
+    }
+
+    /**
+     * Registers an action executed if the client closes the connection before the current request completes.
+     * <p>
+     * Must be called on the thread that processes the request. The action is executed on an I/O thread, so it must
+     * not block. Nothing is registered outside a request served by Undertow.
+     * </p>
+     *
+     * @param onDisconnect The action executed when the client disconnects.
+     */
+    static void register(Runnable onDisconnect) {
+        var context = ServletRequestContext.current();
+        if (context == null) {
+            return;
+        }
+        var exchange = context.getExchange();
+        var disconnect = of(exchange.getConnection());
+        disconnect.inFlight.add(onDisconnect);
+        exchange.addExchangeCompleteListener((completed, next) -> {
+            disconnect.inFlight.remove(onDisconnect);
+            next.proceed();
+        });
+    }
+
+    private static ClientDisconnect of(ServerConnection connection) {
+        synchronized (connection) {
+            var disconnect = connection.getAttachment(KEY);
+            if (disconnect == null) {
+                disconnect = new ClientDisconnect();
+                connection.putAttachment(KEY, disconnect);
+                connection.addCloseListener(disconnect::closed);
+            }
+            return disconnect;
+        }
+    }
+
+    private void closed(ServerConnection connection) {
+        for (var action : inFlight) {
+            if (inFlight.remove(action)) {
+                action.run();
+            }
+        }
+    }
+}
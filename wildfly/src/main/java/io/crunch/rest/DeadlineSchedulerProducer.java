@@ -0,0 +1,66 @@
+package io.crunch.rest;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Produces the {@link DeadlineScheduler} selected by the {@code activity.deadline.scheduler} configuration property.
+ * <p>
+ * The worker thread of the {@link HashedWheelTimer} is created by the default managed thread factory and the expired
+ * deadlines are run by the default managed executor service, so both have the context of the application.
+ * </p>
+ */
+@ApplicationScoped
+public class DeadlineSchedulerProducer {
+
+    private final Logger log = Logger.getLogger(DeadlineSchedulerProducer.class);
+
+    @Resource(mappedName = "java:comp/DefaultManagedThreadFactory")
+    private ManagedThreadFactory managedThreadFactory;
+
+    @Resource(mappedName = "java:comp/DefaultManagedExecutorService")
+    private ManagedExecutorService managedExecutorService;
+
+    @Resource(mappedName = "java:comp/DefaultManagedScheduledExecutorService")
+    private ManagedScheduledExecutorService managedScheduledExecutorService;
+
+    @Inject
+    @ConfigProperty(name = "activity.deadline.scheduler", defaultValue = "WHEEL")
+    DeadlineScheduler.Type type;
+
+    @Inject
+    @ConfigProperty(name = "activity.deadline.tick-millis", defaultValue = "100")
+    long tickMillis;
+
+    @Inject
+    @ConfigProperty(name = "activity.deadline.wheel-size", defaultValue = "512")
+    int wheelSize;
+
+    @Produces
+    @ApplicationScoped
+    DeadlineScheduler deadlineScheduler() {
+        log.info("Request deadlines are scheduled by " + type);
+        return switch (type) {
+            case WHEEL -> {
+                var timer = new HashedWheelTimer(managedThreadFactory, managedExecutorService, tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+                timer.start();
+                yield timer;
+            }
+            case EXECUTOR -> new ExecutorDeadlineScheduler(managedScheduledExecutorService);
+        };
+    }
+
+    void close(@Disposes DeadlineScheduler scheduler) {
+        scheduler.close();
+    }
+}
@@ -0,0 +1,165 @@
+package io.crunch.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.CompletionCallback;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * REST resource that runs the long-running activity task as an asynchronous job.
+ * <p>
+ * The suspended and reactive endpoints keep the HTTP connection open until the task completes. The job API releases
+ * the connection immediately instead: {@code POST /activity/jobs} starts the task and returns {@code 202 Accepted}
+ * with the job identifier and its {@code Location}, then the client polls {@code GET /activity/jobs/{id}}.
+ * </p>
+ *
+ * <h2>Job Status</h2>
+ * <p>
+ * - A pending job returns its {@link JobStatus}.
+ * - A succeeded job returns the activities.
+ * - A failed job is reported through the {@link CustomException} flow, so the client receives the same error response
+ *   as on the other endpoints.
+ * - An unknown or evicted job returns 404 Not Found.
+ * </p>
+ *
+ * <h2>Long Polling</h2>
+ * <p>
+ * With the {@code wait} query parameter, for example {@code ?wait=5s} or {@code ?wait=500ms}, the status request of a
+ * pending job is parked until the job completes or the wait expires, whichever comes first. The {@link AsyncResponse}
+ * of the parked request is resumed directly by a completion listener of the job or by a deadline of the shared
+ * {@link DeadlineScheduler}, so neither a thread nor a sleep is spent per waiting client.
+ * </p>
+ *
+ * <h2>Priority</h2>
+ * <p>
+ * Nobody waits for a job interactively, so its task is a {@link Priority#BATCH} run that only uses the worker slots
+ * the interactive requests leave idle, see {@link ActivityPriorities}.
+ * </p>
+ *
+ * @see JobStore
+ */
+@ApplicationScoped
+@Path("/activity/jobs")
+public class JobResource {
+
+    private final Logger log = Logger.getLogger(JobResource.class);
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private static final Pattern WAIT = Pattern.compile("(\\d{1,9})(ms|s)?");
+
+    @Inject
+    ActivityTask activityTask;
+
+    @Inject
+    JobStore jobs;
+
+    @Inject
+    DeadlineScheduler deadlines;
+
+    @Inject
+    @ConfigProperty(name = "activity.jobs.execution-mode", defaultValue = "PLATFORM")
+    ExecutionMode jobsMode;
+
+    @Inject
+    @ConfigProperty(name = "activity.jobs.max-wait-seconds", defaultValue = "30")
+    long maxWaitSeconds;
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response submit(@Context UriInfo uriInfo) {
+        var job = jobs.submit(() -> activityTask.start(jobsMode, TaskDeadline.NONE, Priority.BATCH))
+                .orElseThrow(() -> new ServiceUnavailableException("Job store is full", RETRY_AFTER_SECONDS));
+        log.info("Job - " + job.id() + " accepted");
+        return Response.accepted(JobStatus.of(job))
+                .location(uriInfo.getAbsolutePathBuilder().path(job.id()).build())
+                .build();
+    }
+
+    /**
+     * Returns the state of a job, optionally waiting for its completion.
+     *
+     * @param id The identifier of the job.
+     * @param wait The maximum time to wait for a pending job, for example {@code 5s} or {@code 500ms}.
+     * @param asyncResponse The suspended asynchronous response object used to send the state.
+     */
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void status(@PathParam("id") String id, @QueryParam("wait") String wait,
+                       @Suspended AsyncResponse asyncResponse) {
+        var job = jobs.find(id).orElse(null);
+        if (job == null) {
+            asyncResponse.resume(new NotFoundException());
+            return;
+        }
+        var waitMillis = waitMillis(wait);
+        if (waitMillis < 0) {
+            asyncResponse.resume(new BadRequestException("Invalid wait: " + wait));
+            return;
+        }
+        if (job.status() != Job.Status.PENDING || waitMillis == 0) {
+            resume(asyncResponse, job);
+            return;
+        }
+        var timeout = deadlines.schedule(waitMillis, TimeUnit.MILLISECONDS, () -> resume(asyncResponse, job));
+        var registration = job.onCompletion(() -> {
+            timeout.cancel();
+            resume(asyncResponse, job);
+        });
+        asyncResponse.register((CompletionCallback) error -> {
+            timeout.cancel();
+            registration.remove();
+        });
+    }
+
+    private void resume(AsyncResponse asyncResponse, Job job) {
+        switch (job.status()) {
+            case PENDING -> asyncResponse.resume(Response.ok(JobStatus.of(job)).build());
+            case SUCCEEDED -> asyncResponse.resume(ActivityPayload.ok(job.result()).build());
+            case FAILED -> asyncResponse.resume(failure(job));
+        }
+    }
+
+    /**
+     * Parses the {@code wait} query parameter, a number of seconds or milliseconds capped at the maximum wait.
+     *
+     * @return The wait in milliseconds, or {@code -1} if the parameter is invalid.
+     */
+    private long waitMillis(String wait) {
+        if (wait == null || wait.isBlank()) {
+            return 0;
+        }
+        var matcher = WAIT.matcher(wait.strip());
+        if (!matcher.matches()) {
+            return -1;
+        }
+        var amount = Long.parseLong(matcher.group(1));
+        var millis = "ms".equals(matcher.group(2)) ? amount : TimeUnit.SECONDS.toMillis(amount);
+        return Math.min(millis, TimeUnit.SECONDS.toMillis(maxWaitSeconds));
+    }
+
+    private CustomException failure(Job job) {
+        log.error("Job - " + job.id() + " failed");
+        return job.failure() instanceof CustomException e ? e : new CustomException("Job failed", job.failure());
+    }
+}
@@ -0,0 +1,14 @@
+package io.crunch.rest;
+
+/**
+ * JSON representation of a job that has not succeeded yet.
+ *
+ * @param id The identifier of the job.
+ * @param status The current status of the job.
+ */
+public record JobStatus(String id, Job.Status status) {
+
+    static JobStatus of(Job job) {
+        return new JobStatus(job.id(), job.status());
+    }
+}
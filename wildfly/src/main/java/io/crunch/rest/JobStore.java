@@ -0,0 +1,106 @@
+package io.crunch.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory store of the jobs submitted through the job API.
+ * <p>
+ * The store holds at most {@code activity.jobs.capacity} jobs. A slot is reserved by atomically incrementing the size
+ * counter before the job is created, and released when the job is evicted, so admission never takes a lock.
+ * Completed jobs are evicted {@code activity.jobs.ttl-seconds} after their completion by a deadline registered with
+ * the shared {@link DeadlineScheduler}, so no sweeper thread scans the store.
+ * </p>
+ * <p>
+ * A job whose task cannot be started fails at once, and a job still pending {@code activity.jobs.pending-ttl-seconds}
+ * after its submission has its task cancelled and fails, for example a batch run starved by interactive load. Both are
+ * evicted like any completed job, so every job gives its slot back.
+ * </p>
+ */
+@ApplicationScoped
+public class JobStore {
+
+    private final Logger log = Logger.getLogger(JobStore.class);
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Inject
+    DeadlineScheduler deadlines;
+
+    @Inject
+    @ConfigProperty(name = "activity.jobs.capacity", defaultValue = "10000")
+    int capacity;
+
+    @Inject
+    @ConfigProperty(name = "activity.jobs.ttl-seconds", defaultValue = "300")
+    long ttlSeconds;
+
+    @Inject
+    @ConfigProperty(name = "activity.jobs.pending-ttl-seconds", defaultValue = "600")
+    long pendingTtlSeconds;
+
+    /**
+     * Creates a job and starts its task.
+     *
+     * @param task Starts the task of the job.
+     * @return The created job, or an empty optional if the store is full.
+     */
+    public Optional<Job> submit(Supplier<CompletableFuture<String>> task) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            log.warn("Job store is full, job rejected");
+            return Optional.empty();
+        }
+        var job = new Job(UUID.randomUUID().toString());
+        jobs.put(job.id(), job);
+        var run = start(job, task);
+        var expiry = deadlines.schedule(pendingTtlSeconds, TimeUnit.SECONDS, () -> {
+            log.warn("Job " + job.id() + " still pending after " + pendingTtlSeconds + " seconds, its task is cancelled");
+            run.cancel(false);
+        });
+        run.whenComplete((activities, error) -> {
+            expiry.cancel();
+            job.complete(activities, error);
+            deadlines.schedule(ttlSeconds, TimeUnit.SECONDS, () -> evict(job));
+        });
+        return Optional.of(job);
+    }
+
+    private CompletableFuture<String> start(Job job, Supplier<CompletableFuture<String>> task) {
+        try {
+            return task.get();
+        } catch (RuntimeException e) {
+            log.error("Job " + job.id() + " could not be started", e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the job with the given identifier, unless it has been evicted.
+     */
+    public Optional<Job> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void evict(Job job) {
+        if (jobs.remove(job.id(), job)) {
+            size.decrementAndGet();
+        }
+    }
+}
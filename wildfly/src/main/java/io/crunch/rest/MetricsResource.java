@@ -0,0 +1,27 @@
+package io.crunch.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.Map;
+
+/**
+ * REST resource that exposes the {@link ActivityMetrics} as a JSON object.
+ */
+@ApplicationScoped
+@Path("/activity/metrics")
+public class MetricsResource {
+
+    @Inject
+    ActivityMetrics metrics;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Long> metrics() {
+        return metrics.snapshot();
+    }
+}
@@ -0,0 +1,68 @@
+package io.crunch.rest;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+
+/**
+ * Pre-built Server-Sent Events of the activity progress stream.
+ * <p>
+ * Outbound events are immutable, so the events of every tick of every possible duration are built once from the
+ * {@link ProgressFrames} payloads and shared by all streams. Sending a progress event is then a table lookup followed
+ * by a single write of the event.
+ * </p>
+ * <ul>
+ *     <li>{@code progress} – sent after every tick, for example {@code {"tick":3,"duration":7}}.</li>
+ *     <li>{@code activities} – sent once when the task completes.</li>
+ *     <li>{@code error} – sent once when the task fails.</li>
+ * </ul>
+ */
+final class SseFrames {
+
+    private final Sse sse;
+
+    private final OutboundSseEvent[][] progress = new OutboundSseEvent[ActivityTask.MAX_DURATION + 1][];
+
+    private final OutboundSseEvent activities;
+
+    private final OutboundSseEvent failure;
+
+    SseFrames(Sse sse) {
+        this.sse = sse;
+        for (int duration = 1; duration <= ActivityTask.MAX_DURATION; duration++) {
+            progress[duration] = new OutboundSseEvent[duration + 1];
+            for (int tick = 1; tick <= duration; tick++) {
+                progress[duration][tick] = event("progress", ProgressFrames.progress(tick, duration));
+            }
+        }
+        this.activities = event("activities", ActivityTask.ACTIVITIES);
+        this.failure = event("error", ProgressFrames.FAILURE);
+    }
+
+    boolean isBuiltBy(Sse sse) {
+        return this.sse == sse;
+    }
+
+    OutboundSseEvent progress(int tick, int duration) {
+        if (duration < 1 || duration > ActivityTask.MAX_DURATION || tick < 1 || tick > duration) {
+            return event("progress", ProgressFrames.progress(tick, duration));
+        }
+        return progress[duration][tick];
+    }
+
+    OutboundSseEvent activities(String payload) {
+        return ActivityTask.ACTIVITIES.equals(payload) ? activities : event("activities", payload);
+    }
+
+    OutboundSseEvent failure() {
+        return failure;
+    }
+
+    private OutboundSseEvent event(String name, String payload) {
+        return sse.newEventBuilder()
+                .name(name)
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, payload)
+                .build();
+    }
+}
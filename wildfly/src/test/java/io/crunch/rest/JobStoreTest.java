@@ -0,0 +1,125 @@
+package io.crunch.rest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobStoreTest {
+
+    private final List<Scheduled> scheduled = new ArrayList<>();
+
+    private JobStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new JobStore();
+        store.capacity = 2;
+        store.ttlSeconds = 300;
+        store.pendingTtlSeconds = 600;
+        store.deadlines = (delay, unit, onExpiry) -> {
+            var deadline = new Scheduled(unit.toSeconds(delay), onExpiry);
+            scheduled.add(deadline);
+            return deadline;
+        };
+    }
+
+    @Test
+    void failsAndEvictsJobWhoseTaskCannotStart() {
+        var job = store.submit(() -> {
+            throw new RejectedExecutionException("Executor shut down");
+        }).orElseThrow();
+
+        assertEquals(Job.Status.FAILED, job.status());
+        assertInstanceOf(RejectedExecutionException.class, job.failure());
+        expire(300);
+        assertEquals(0, store.size());
+        assertTrue(store.find(job.id()).isEmpty());
+    }
+
+    @Test
+    void cancelsTaskOfJobPendingTooLong() {
+        var run = new CompletableFuture<String>();
+        var job = store.submit(() -> run).orElseThrow();
+
+        expire(600);
+
+        assertTrue(run.isCancelled());
+        assertEquals(Job.Status.FAILED, job.status());
+        expire(300);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void keepsCompletedJobUntilItsTtl() {
+        var run = new CompletableFuture<String>();
+        var job = store.submit(() -> run).orElseThrow();
+
+        run.complete("activities");
+
+        assertEquals(Job.Status.SUCCEEDED, job.status());
+        assertEquals(1, scheduled.stream().filter(deadline -> deadline.cancelled).count());
+        assertEquals(1, store.size());
+        expire(300);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void rejectsJobsBeyondCapacity() {
+        assertTrue(store.submit(CompletableFuture::new).isPresent());
+        assertTrue(store.submit(CompletableFuture::new).isPresent());
+
+        assertTrue(store.submit(CompletableFuture::new).isEmpty());
+        assertEquals(2, store.size());
+    }
+
+    /**
+     * Runs the pending deadlines with the given delay, as if it passed.
+     */
+    private void expire(long seconds) {
+        for (var deadline : List.copyOf(scheduled)) {
+            if (deadline.seconds == seconds && !deadline.cancelled && !deadline.expired) {
+                deadline.expired = true;
+                deadline.onExpiry.run();
+            }
+        }
+    }
+
+    private static final class Scheduled implements DeadlineScheduler.Deadline {
+
+        private final long seconds;
+
+        private final Runnable onExpiry;
+
+        private boolean cancelled;
+
+        private boolean expired;
+
+        Scheduled(long seconds, Runnable onExpiry) {
+            this.seconds = seconds;
+            this.onExpiry = onExpiry;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (cancelled || expired) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expired;
+        }
+    }
+}